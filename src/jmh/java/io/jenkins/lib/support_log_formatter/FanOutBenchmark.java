@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.StreamHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Publishes each record to several handlers sharing a formatter, as when logging to the console, a file and a support bundle,
+ * with and without {@link SupportLogFormatter#MEMOIZE}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    @Param({"true", "false"})
+    public boolean memoize;
+
+    private Handler[] handlers;
+    private Throwable thrown;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SupportLogFormatter.MEMOIZE = memoize;
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        handlers = new Handler[3];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = new StreamHandler(OutputStream.nullOutputStream(), formatter);
+        }
+        thrown = new IllegalStateException("Unexpected exception in CPS VM thread", new IOException("Connection reset"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Handler handler : handlers) {
+            handler.close();
+        }
+    }
+
+    @Benchmark
+    public void publish() {
+        LogRecord record = new LogRecord(Level.WARNING, "Started Timer [#{0}] for Jenkins \u00bb folder \u00bb job");
+        record.setParameters(new Object[] {"" + next++});
+        record.setSourceClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup");
+        record.setSourceMethodName("run");
+        if ((next & 7) == 0) {
+            record.setThrown(thrown);
+        }
+        for (Handler handler : handlers) {
+            handler.publish(record);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.StreamHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the hot paths of {@link SupportLogFormatter}.
+ * Run with {@code mvn -P benchmark test-compile exec:exec}; the {@code gc} profiler is enabled by default
+ * so that allocation rates ({@code gc.alloc.rate.norm}) are reported alongside throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SupportLogFormatterBenchmark {
+
+    private static final String[] CLASS_NAMES = {
+            "hudson.model.Queue",
+            "hudson.model.AsyncPeriodicWork",
+            "jenkins.model.lazy.LazyBuildMixIn",
+            "hudson.plugins.git.GitSCM",
+            "org.jenkinsci.plugins.workflow.cps.CpsThreadGroup",
+            "org.jenkinsci.plugins.workflow.support.concurrent.Timeout",
+            "com.cloudbees.jenkins.support.impl.ThreadDumps",
+            "org.eclipse.jetty.server.handler.ContextHandler.Context",
+            "io.jenkins.plugins.casc.impl.configurators.DataBoundConfigurator",
+            "org.jenkinsci.plugins.workflow.flow.FlowExecutionList$ItemListenerImpl",
+    };
+
+    /** Many more distinct class names than {@link SupportLogFormatter#ABBREVIATION_CACHE_SIZE}, so that most lookups miss. */
+    private static final String[] MANY_CLASS_NAMES = new String[16 * SupportLogFormatter.ABBREVIATION_CACHE_SIZE + 1];
+
+    static {
+        for (int i = 0; i < MANY_CLASS_NAMES.length; i++) {
+            MANY_CLASS_NAMES[i] = "org.jenkinsci.plugins.generated" + i % 97 + ".support.impl" + i + "." + CLASS_NAMES[i % CLASS_NAMES.length].replace('.', '_');
+        }
+    }
+
+    private SupportLogFormatter formatter;
+    private LogRecord shortInfo;
+    private LogRecord multiLine;
+    private LogRecord deepCause;
+    private LogRecord parameterized;
+    private String plainMessage;
+    private String multiLineMessage;
+    private Throwable deepThrowable;
+    private FrameFilter frameFilter;
+    private int next;
+    private FileChannelHandler fileChannelHandler;
+    private StreamHandler streamHandler;
+    private OffHeapRingBufferHandler ringBufferHandler;
+    private final StringBuilder buffer = new StringBuilder(64 * 1024);
+    private final PrintWriter nullWriter = new PrintWriter(Writer.nullWriter());
+
+    @Setup
+    public void setUp() throws IOException {
+        // every benchmark formats the same records over and over, which would otherwise only measure FormattingMemo
+        SupportLogFormatter.MEMOIZE = false;
+        formatter = new SupportLogFormatter();
+        plainMessage = "Started Timer [#42] for Jenkins \u00bb folder \u00bb job #1234 on built-in node";
+        multiLineMessage = "Failed to load build records:\n  job/a/builds/12\n  job/a/builds/13\r\n  job/b/builds/7\n";
+        deepThrowable = deepCauseChain(8, 40);
+        frameFilter = new FrameFilter(List.of("hudson.model.", "jenkins.model.", "org.eclipse.jetty."), 20);
+        shortInfo = record(Level.INFO, plainMessage, null, "hudson.model.AsyncPeriodicWork", "lambda$doRun$0");
+        multiLine = record(Level.WARNING, multiLineMessage, null, "jenkins.model.lazy.LazyBuildMixIn", "loadBuild");
+        deepCause = record(Level.SEVERE, "Unexpected exception in CPS VM thread", deepThrowable,
+                "org.jenkinsci.plugins.workflow.cps.CpsThreadGroup", null);
+        parameterized = record(Level.INFO, "Started {0} for {1} on {2}", null, "hudson.model.AsyncPeriodicWork", "doRun");
+        parameterized.setParameters(new Object[] {"Timer [#42]", "Jenkins \u00bb folder \u00bb job #1234", "built-in node"});
+        // keeps at most 64 MiB on disk; note that unlike the StreamHandler below this includes the cost of the actual writes
+        fileChannelHandler = new FileChannelHandler(Files.createTempFile("benchmark", ".log"), 64 * 1024 * 1024, 1, true);
+        fileChannelHandler.setAutoFlush(false);
+        streamHandler = new StreamHandler(OutputStream.nullOutputStream(), formatter);
+        streamHandler.setEncoding("UTF-8");
+        ringBufferHandler = new OffHeapRingBufferHandler(16 * 1024 * 1024);
+    }
+
+    private static LogRecord record(Level level, String message, Throwable thrown, String sourceClass, String sourceMethod) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLongThreadID(123);
+        record.setInstant(Instant.parse("2026-01-01T12:34:56.789Z"));
+        record.setLoggerName(sourceClass);
+        record.setSourceClassName(sourceClass);
+        record.setSourceMethodName(sourceMethod);
+        record.setThrown(thrown);
+        return record;
+    }
+
+    /**
+     * Builds a cause chain of {@code depth} exceptions which share most of their frames with their enclosing exception,
+     * with a suppressed exception attached at every other level, roughly as seen in Pipeline failures.
+     */
+    private static Throwable deepCauseChain(int depth, int frames) {
+        Throwable cause = null;
+        for (int level = depth; level > 0; level--) {
+            StackTraceElement[] trace = new StackTraceElement[frames + level];
+            for (int i = 0; i < trace.length; i++) {
+                String className = CLASS_NAMES[(i + level) % CLASS_NAMES.length];
+                trace[i] = new StackTraceElement(className, "method" + i, className.substring(className.lastIndexOf('.') + 1) + ".java", 100 + i);
+            }
+            Exception e = level % 2 == 0
+                    ? new IllegalStateException("failure at level " + level + "\nwith details on a second line", cause)
+                    : new java.io.IOException("I/O failure at level " + level, cause);
+            e.setStackTrace(trace);
+            if (level % 2 == 1) {
+                Exception suppressed = new IllegalArgumentException("suppressed at level " + level);
+                suppressed.setStackTrace(trace);
+                e.addSuppressed(suppressed);
+            }
+            cause = e;
+        }
+        return cause;
+    }
+
+    @Benchmark
+    public String formatShortInfo() {
+        return formatter.format(shortInfo);
+    }
+
+    @Benchmark
+    public String formatMultiLine() {
+        return formatter.format(multiLine);
+    }
+
+    @Benchmark
+    public String formatDeepCauseChain() {
+        return formatter.format(deepCause);
+    }
+
+    @Benchmark
+    public String formatParameterized() {
+        return formatter.format(parameterized);
+    }
+
+    @Benchmark
+    public void formatToShortInfo(Blackhole bh) {
+        StringBuilder builder = buffer;
+        builder.setLength(0);
+        formatter.formatTo(shortInfo, builder);
+        bh.consume(builder);
+    }
+
+    @Benchmark
+    public void formatToDeepCauseChain(Blackhole bh) {
+        StringBuilder builder = buffer;
+        builder.setLength(0);
+        formatter.formatTo(deepCause, builder);
+        bh.consume(builder);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String formatShortInfoContended() {
+        return formatter.format(shortInfo);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String formatDeepCauseChainContended() {
+        return formatter.format(deepCause);
+    }
+
+    @Benchmark
+    public String transformPlainMessage() {
+        return SupportLogFormatter.transformMessage(plainMessage, "");
+    }
+
+    @Benchmark
+    public String transformMultiLineMessage() {
+        return SupportLogFormatter.transformMessage(multiLineMessage, "\t");
+    }
+
+    @Benchmark
+    public void abbreviateClassName(Blackhole bh) {
+        String className = CLASS_NAMES[next++ % CLASS_NAMES.length];
+        bh.consume(formatter.abbreviateClassName(className, 32));
+        bh.consume(formatter.abbreviateClassName(className, 40));
+    }
+
+    @Benchmark
+    public void abbreviateClassNameUncached(Blackhole bh) {
+        String className = MANY_CLASS_NAMES[next++ % MANY_CLASS_NAMES.length];
+        bh.consume(formatter.abbreviateClassName(className, 32));
+        bh.consume(formatter.abbreviateClassName(className, 40));
+    }
+
+    @Benchmark
+    public String printThrowable() {
+        return SupportLogFormatter.printThrowable(deepThrowable);
+    }
+
+    @Benchmark
+    public String printThrowableFolded() {
+        SupportLogFormatter.FRAME_FILTER = frameFilter;
+        try {
+            return SupportLogFormatter.printThrowable(deepThrowable);
+        } finally {
+            SupportLogFormatter.FRAME_FILTER = null;
+        }
+    }
+
+    @Benchmark
+    public void printStackTraceToWriter() {
+        SupportLogFormatter.printStackTrace(deepThrowable, nullWriter);
+    }
+
+    @Benchmark
+    public void publishToFileChannelHandler() {
+        fileChannelHandler.publish(shortInfo);
+    }
+
+    @Benchmark
+    public void publishToStreamHandler() {
+        streamHandler.publish(shortInfo);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void publishToOffHeapRingBufferHandlerContended() {
+        ringBufferHandler.publish(shortInfo);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileChannelHandler.close();
+        streamHandler.close();
+        ringBufferHandler.close();
+        Files.deleteIfExists(fileChannelHandler.getFile());
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} which hands records over to a dedicated thread, so that logging threads
+ * do not pay for formatting (e.g. by {@link SupportLogFormatter}) and I/O.
+ * Records are queued in a bounded lock-free ring buffer and passed on in batches to a target handler,
+ * which is flushed once per batch rather than once per record.
+ * <p>
+ * Before a record is queued, any state that could change or that depends on the logging thread is captured:
+ * the caller is inferred, and parameters which may be mutable are converted to their string form.
+ * Thrown exceptions are not captured: rendering them is the most expensive part of formatting, which this handler
+ * exists to move off the logging thread, and the target may need the {@link Throwable} itself.
+ * So they are passed on as is, and a change made after logging, such as {@link Throwable#addSuppressed} or
+ * {@link Throwable#initCause}, may or may not show up in the output, depending on when the consumer thread gets to the record.
+ * Exceptions should therefore not be modified after having been logged.
+ */
+public class AsyncHandler extends Handler {
+
+    /**
+     * What to do with a record when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until there is room. Nothing is lost, but logging threads may be slowed down to the speed of the target. */
+        BLOCK,
+        /** Drop records below {@link #getDropThreshold()}, and wait for room for the others. */
+        DROP_BELOW_LEVEL,
+        /** Drop the oldest queued record to make room. */
+        DROP_OLDEST,
+    }
+
+    static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Handler target;
+    private final OverflowPolicy overflowPolicy;
+    private final BoundedRingBuffer<LogRecord> queue;
+    private final Thread consumer;
+    private volatile Level dropThreshold = Level.WARNING;
+    private volatile boolean consumerIdle;
+    private volatile boolean closed;
+
+    /** Number of threads in {@link #publish} which may still queue a record. */
+    private final AtomicInteger publishing = new AtomicInteger();
+    /** Records successfully queued. */
+    private final AtomicLong submitted = new AtomicLong();
+    /** Records taken from the queue by the consumer and passed on to a target which has since been flushed. */
+    private volatile long flushed;
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a handler with a queue of {@value #DEFAULT_CAPACITY} records which blocks when full.
+     * @param target the handler which formats and writes records
+     */
+    public AsyncHandler(@NonNull Handler target) {
+        this(target, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param target the handler which formats and writes records
+     * @param capacity the maximum number of queued records, rounded up to a power of two
+     * @param overflowPolicy what to do with records when the queue is full
+     */
+    @SuppressWarnings("this-escape")
+    public AsyncHandler(@NonNull Handler target, int capacity, @NonNull OverflowPolicy overflowPolicy) {
+        this.target = target;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new BoundedRingBuffer<>(capacity);
+        consumer = new Thread(this::consume, "AsyncHandler for " + target.getClass().getName());
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    public Level getDropThreshold() {
+        return dropThreshold;
+    }
+
+    /**
+     * Sets the level below which records are dropped when the queue is full and the policy is {@link OverflowPolicy#DROP_BELOW_LEVEL}.
+     * Defaults to {@link Level#WARNING}.
+     */
+    public void setDropThreshold(@NonNull Level dropThreshold) {
+        this.dropThreshold = dropThreshold;
+    }
+
+    /**
+     * @return the number of records dropped so far because the queue was full or the handler was closed
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of records currently waiting to be passed on to the target
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        publishing.incrementAndGet();
+        try {
+            if (closed) {
+                dropped.increment();
+                return;
+            }
+            enqueue(record);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    private void enqueue(LogRecord record) {
+        LogRecord snapshot = snapshot(record);
+        if (Thread.currentThread() == consumer) {
+            // logging from within the target; queuing could deadlock on a full queue
+            publishToTarget(snapshot);
+            return;
+        }
+        while (!queue.offer(snapshot)) {
+            if (closed || !consumer.isAlive()) {
+                dropped.increment();
+                return;
+            }
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    if (queue.poll() != null) {
+                        evicted.increment();
+                        dropped.increment();
+                    }
+                    break;
+                case DROP_BELOW_LEVEL:
+                    if (record.getLevel().intValue() < dropThreshold.intValue()) {
+                        dropped.increment();
+                        return;
+                    }
+                    waitForRoom();
+                    break;
+                default:
+                    waitForRoom();
+                    break;
+            }
+        }
+        submitted.incrementAndGet();
+        if (consumerIdle) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void waitForRoom() {
+        LockSupport.unpark(consumer);
+        LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+    }
+
+    /**
+     * Waits until all records published before this call have been passed on to the target, and the target has been flushed.
+     */
+    @Override
+    public void flush() {
+        if (Thread.currentThread() == consumer) {
+            flushTarget();
+            return;
+        }
+        long target = submitted.get();
+        while (flushed + evicted.sum() < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Stops accepting records, passes on all queued records, and closes the target.
+     * Records published concurrently are either passed on or counted as {@linkplain #getDroppedCount dropped}.
+     * Closing again has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+        try {
+            consumer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+        // publishers which got past the check of closed before it was set may still be queuing
+        while (publishing.get() > 0 && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+        }
+        for (LogRecord record = queue.poll(); record != null; record = queue.poll()) {
+            publishToTarget(record);
+        }
+        target.close();
+        // anything still queued now was published too late; at least account for it
+        while (queue.poll() != null) {
+            dropped.increment();
+        }
+    }
+
+    private void consume() {
+        long taken = 0;
+        int batch = 0;
+        while (true) {
+            LogRecord record = queue.poll();
+            if (record != null) {
+                publishToTarget(record);
+                taken++;
+                if (++batch < MAX_BATCH_SIZE) {
+                    continue;
+                }
+            }
+            if (batch > 0) {
+                flushTarget();
+                flushed = taken;
+                batch = 0;
+                continue;
+            }
+            if (closed && queue.isEmpty()) {
+                return;
+            }
+            consumerIdle = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            consumerIdle = false;
+        }
+    }
+
+    private void publishToTarget(LogRecord record) {
+        try {
+            target.publish(record);
+        } catch (RuntimeException x) {
+            reportError(null, x, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void flushTarget() {
+        try {
+            target.flush();
+        } catch (RuntimeException x) {
+            reportError(null, x, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Copies a record so that it can safely be handled later on another thread.
+     */
+    static LogRecord snapshot(LogRecord record) {
+        LogRecord copy = new LogRecord(record.getLevel(), record.getMessage());
+        copy.setLoggerName(record.getLoggerName());
+        copy.setResourceBundle(record.getResourceBundle());
+        copy.setResourceBundleName(record.getResourceBundleName());
+        // caller inference walks the current stack, so must happen on the logging thread
+        copy.setSourceClassName(record.getSourceClassName());
+        copy.setSourceMethodName(record.getSourceMethodName());
+        copy.setInstant(record.getInstant());
+        copy.setLongThreadID(record.getLongThreadID());
+        copy.setSequenceNumber(record.getSequenceNumber());
+        copy.setThrown(record.getThrown());
+        Object[] parameters = record.getParameters();
+        if (parameters != null) {
+            Object[] copiedParameters = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                copiedParameters[i] = snapshot(parameters[i]);
+            }
+            copy.setParameters(copiedParameters);
+        }
+        return copy;
+    }
+
+    /**
+     * Captures the current state of a parameter in a form that {@link java.text.MessageFormat} renders the same way.
+     */
+    private static Object snapshot(Object parameter) {
+        if (parameter == null || parameter instanceof String || parameter instanceof Boolean || parameter instanceof Character
+                || parameter instanceof Integer || parameter instanceof Long || parameter instanceof Double || parameter instanceof Float
+                || parameter instanceof Short || parameter instanceof Byte || parameter instanceof BigInteger || parameter instanceof BigDecimal
+                || parameter instanceof Enum) {
+            return parameter;
+        }
+        if (parameter instanceof AtomicInteger || parameter instanceof AtomicLong || parameter instanceof LongAdder || parameter instanceof LongAccumulator) {
+            return ((Number) parameter).longValue();
+        }
+        if (parameter instanceof DoubleAdder || parameter instanceof DoubleAccumulator) {
+            return ((Number) parameter).doubleValue();
+        }
+        if (parameter instanceof Number) {
+            // formatted as a number rather than by toString, so cannot be converted to a string; assume it is immutable
+            return parameter;
+        }
+        if (parameter instanceof Date) {
+            return ((Date) parameter).clone();
+        }
+        try {
+            return parameter.toString();
+        } catch (RuntimeException x) {
+            // let formatting fail the same way later on
+            return parameter;
+        }
+    }
+}
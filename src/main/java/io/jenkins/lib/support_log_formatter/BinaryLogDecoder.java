@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the output of {@link BinaryLogEncoder} back into the text {@link SupportLogFormatter#format} would have produced.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class BinaryLogDecoder {
+
+    private final InputStream in;
+    private final StringBuilder text = new StringBuilder(256);
+    private final List<String> levels = new ArrayList<>();
+    private final List<String> classes = new ArrayList<>();
+    private final List<String> methods = new ArrayList<>();
+    private final List<String> frames = new ArrayList<>();
+    private byte[] bytes = new byte[256];
+    private long previousMillis;
+    private boolean started;
+
+    /**
+     * @param in the encoded records, which should be buffered
+     */
+    public BinaryLogDecoder(@NonNull InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Decodes a whole file.
+     * @param file a file written by {@link BinaryLogHandler} or otherwise with {@link BinaryLogEncoder}
+     * @param out where to append the text of all records
+     * @throws IOException if the file cannot be read or is corrupt, or appending fails
+     */
+    public static void decode(@NonNull Path file, @NonNull Appendable out) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+            while (decoder.next(out)) {
+                // keep going
+            }
+        }
+    }
+
+    /**
+     * Decodes the next record.
+     * @param out where to append the text of the record
+     * @return false if there are no more records
+     * @throws IOException if reading fails or the input is corrupt, or appending fails
+     */
+    public boolean next(@NonNull Appendable out) throws IOException {
+        int flags = in.read();
+        while (flags == BinaryLogEncoder.MAGIC[0] || !started && flags != -1) {
+            readSession(flags);
+            flags = in.read();
+        }
+        if (flags == -1) {
+            return false;
+        }
+        if ((flags & ~(BinaryLogEncoder.HAS_METHOD | BinaryLogEncoder.HAS_MESSAGE | BinaryLogEncoder.HAS_THROWN | BinaryLogEncoder.CUSTOM_TIME)) != 0) {
+            throw new StreamCorruptedException("Unexpected flags " + flags);
+        }
+        text.setLength(0);
+        if ((flags & BinaryLogEncoder.CUSTOM_TIME) != 0) {
+            text.append(readString());
+        } else {
+            long zigzag = readVarint();
+            previousMillis += (zigzag >>> 1) ^ -(zigzag & 1);
+            TimestampRenderer.append(text, previousMillis);
+        }
+        text.append(" [id=").append(readVarint()).append("]");
+        text.append("\t").append(readEntry(levels)).append("\t");
+        text.append(readEntry(classes));
+        if ((flags & BinaryLogEncoder.HAS_METHOD) != 0) {
+            text.append("#").append(readEntry(methods));
+        }
+        String thrown = null;
+        if ((flags & BinaryLogEncoder.HAS_THROWN) != 0) {
+            long lines = readVarint();
+            StringBuilder sb = new StringBuilder();
+            for (long i = 0; i < lines; i++) {
+                if (i > 0) {
+                    sb.append('\n');
+                }
+                sb.append(readEntry(frames));
+            }
+            thrown = sb.toString();
+        }
+        if ((flags & BinaryLogEncoder.HAS_MESSAGE) != 0) {
+            text.append(": ").append(readString());
+        }
+        text.append("\n");
+        if (thrown != null) {
+            text.append(thrown);
+        }
+        out.append(text);
+        return true;
+    }
+
+    /**
+     * Checks the header of a session and resets all state.
+     */
+    private void readSession(int first) throws IOException {
+        if (first != BinaryLogEncoder.MAGIC[0]) {
+            throw new StreamCorruptedException("Not a binary log");
+        }
+        for (int i = 1; i < BinaryLogEncoder.MAGIC.length; i++) {
+            if (in.read() != BinaryLogEncoder.MAGIC[i]) {
+                throw new StreamCorruptedException("Not a binary log");
+            }
+        }
+        levels.clear();
+        classes.clear();
+        methods.clear();
+        frames.clear();
+        previousMillis = 0;
+        started = true;
+    }
+
+    private String readEntry(List<String> dictionary) throws IOException {
+        long code = readVarint();
+        if (code == BinaryLogEncoder.DEFINE) {
+            String s = readString();
+            dictionary.add(s);
+            return s;
+        } else if (code == BinaryLogEncoder.LITERAL) {
+            return readString();
+        } else if (code - BinaryLogEncoder.REFERENCE < dictionary.size()) {
+            return dictionary.get((int) (code - BinaryLogEncoder.REFERENCE));
+        } else {
+            throw new StreamCorruptedException("Undefined dictionary entry " + (code - BinaryLogEncoder.REFERENCE));
+        }
+    }
+
+    private String readString() throws IOException {
+        long length = readVarint();
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new StreamCorruptedException("String of " + length + " bytes");
+        }
+        if (bytes.length < length) {
+            bytes = new byte[(int) Math.min(Math.max(length, bytes.length * 2L), Integer.MAX_VALUE - 8)];
+        }
+        int read = in.readNBytes(bytes, 0, (int) length);
+        if (read < length) {
+            throw new EOFException();
+        }
+        return new String(bytes, 0, read, StandardCharsets.UTF_8);
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.LogRecord;
+
+/**
+ * Writes log records in a compact binary form, from which {@link BinaryLogDecoder} reproduces
+ * the exact text {@link SupportLogFormatter#format} would have produced.
+ * <p>
+ * The output is a sequence of sessions, each starting with a header which resets all state, so that files can be appended to.
+ * Each record consists of
+ * <ul>
+ * <li>a flags byte telling which of the optional fields follow,
+ * <li>the time as a zigzag varint difference from the previous record, or the text of an overridden {@link SupportLogFormatter#formatTime},
+ * <li>the thread id as a varint,
+ * <li>the level name, abbreviated source class and source method, each from a dictionary,
+ * <li>the rendering of the thrown exception as a count of lines followed by the lines, with stack frames from a dictionary,
+ * <li>and the message with its line breaks already transformed.
+ * </ul>
+ * Strings are UTF-8 prefixed by their length in bytes.
+ * Dictionary entries are defined inline on first use and referenced by number afterwards, with a separate dictionary per kind of string.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class BinaryLogEncoder {
+
+    static final byte[] MAGIC = "SLFBIN1\n".getBytes(StandardCharsets.US_ASCII);
+
+    static final int HAS_METHOD = 1;
+    static final int HAS_MESSAGE = 2;
+    static final int HAS_THROWN = 4;
+    static final int CUSTOM_TIME = 8;
+
+    /** A dictionary reference code introducing a string which becomes the next entry of the dictionary. */
+    static final int DEFINE = 0;
+    /** A dictionary reference code introducing a string which is not added to the dictionary. */
+    static final int LITERAL = 1;
+    /** Added to the number of an entry to reference it. */
+    static final int REFERENCE = 2;
+
+    /**
+     * Maximum number of entries in each dictionary of a session; further strings are written literally.
+     */
+    static final int DICTIONARY_SIZE = Integer.getInteger(BinaryLogEncoder.class.getName() + ".DICTIONARY_SIZE", 1 << 16);
+
+    private final OutputStream out;
+    private final SupportLogFormatter formatter;
+    private final StringBuilder text = new StringBuilder(256);
+    private final Map<String, Integer> levels = new HashMap<>();
+    private final Map<String, Integer> classes = new HashMap<>();
+    private final Map<String, Integer> methods = new HashMap<>();
+    private final Map<String, Integer> frames = new HashMap<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private long previousMillis;
+
+    /**
+     * Starts a new session by writing its header.
+     * @param out where to write records
+     * @param formatter the formatter whose output to reproduce, which must not override {@link SupportLogFormatter#format}
+     * @throws IOException if the header cannot be written
+     */
+    public BinaryLogEncoder(@NonNull OutputStream out, @NonNull SupportLogFormatter formatter) throws IOException {
+        if (formatter.isFormatOverridden()) {
+            throw new IllegalArgumentException(formatter.getClass().getName() + " overrides format");
+        }
+        this.out = out;
+        this.formatter = formatter;
+        out.write(MAGIC);
+    }
+
+    /**
+     * Writes one record.
+     * @param record the record to write
+     * @throws IOException if writing fails
+     */
+    public void write(@NonNull LogRecord record) throws IOException {
+        // render everything first, so that a failure leaves the dictionaries alone
+        String method = record.getSourceMethodName();
+        String message = formatter.formatMessage(record);
+        String time = formatter.isFormatTimeOverridden() ? formatter.formatTime(record) : null;
+        text.setLength(0);
+        formatter.appendSourceClass(record, text);
+        String sourceClass = text.toString();
+        text.setLength(0);
+        formatter.appendThrown(record, text);
+        int thrownLength = text.length();
+        if (message != null) {
+            SupportLogFormatter.transformMessage(text, message, "");
+        }
+
+        buffer.clear();
+        int flags = (method != null ? HAS_METHOD : 0) | (message != null ? HAS_MESSAGE : 0)
+                | (thrownLength > 0 ? HAS_THROWN : 0) | (time != null ? CUSTOM_TIME : 0);
+        ensure(1);
+        buffer.put((byte) flags);
+        if (time != null) {
+            writeString(time);
+        } else {
+            long millis = record.getMillis();
+            long delta = millis - previousMillis;
+            writeVarint((delta << 1) ^ (delta >> 63));
+            previousMillis = millis;
+        }
+        writeVarint(record.getLongThreadID());
+        writeEntry(levels, record.getLevel().getName(), true);
+        writeEntry(classes, sourceClass, true);
+        if (method != null) {
+            writeEntry(methods, method, true);
+        }
+        if (thrownLength > 0) {
+            writeThrown(text, thrownLength);
+        }
+        if (message != null) {
+            writeString(text.subSequence(thrownLength, text.length()));
+        }
+        out.write(buffer.array(), 0, buffer.position());
+        if (buffer.capacity() > 64 * 1024) {
+            buffer = ByteBuffer.allocate(1024);
+        }
+        if (text.capacity() > 64 * 1024) {
+            text.setLength(0);
+            text.trimToSize();
+        }
+    }
+
+    /**
+     * Writes the lines of a rendered stack trace, putting frames in the dictionary.
+     */
+    private void writeThrown(CharSequence thrown, int length) {
+        int lines = 1;
+        for (int i = 0; i < length; i++) {
+            if (thrown.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        writeVarint(lines);
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || thrown.charAt(i) == '\n') {
+                String line = thrown.subSequence(start, i).toString();
+                writeEntry(frames, line, isFrame(line));
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * @return whether a line of a stack trace looks like {@code \tat some.Class.method(Class.java:123)}, possibly further indented
+     */
+    private static boolean isFrame(String line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) == '\t') {
+            i++;
+        }
+        return i > 0 && line.startsWith("at ", i);
+    }
+
+    private void writeEntry(Map<String, Integer> dictionary, String s, boolean shared) {
+        Integer number = dictionary.get(s);
+        if (number != null) {
+            writeVarint(number + REFERENCE);
+        } else if (shared && dictionary.size() < DICTIONARY_SIZE) {
+            dictionary.put(s, dictionary.size());
+            writeVarint(DEFINE);
+            writeString(s);
+        } else {
+            writeVarint(LITERAL);
+            writeString(s);
+        }
+    }
+
+    private void writeString(CharSequence s) {
+        int length = Utf8Encoder.encodedLength(s);
+        writeVarint(length);
+        ensure(length);
+        Utf8Encoder.encode(s, buffer);
+    }
+
+    private void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
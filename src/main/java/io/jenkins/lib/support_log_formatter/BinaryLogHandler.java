@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} which appends records to a file in the compact form of {@link BinaryLogEncoder}.
+ * Use {@link BinaryLogDecoder#decode(Path, Appendable)} to get the text which a {@link FileChannelHandler} would have written.
+ * <p>
+ * The formatter must be a {@link SupportLogFormatter}, which it is by default.
+ * Its settings apply as usual, except that it may not override {@link SupportLogFormatter#format}.
+ */
+public class BinaryLogHandler extends Handler {
+
+    private final Path file;
+    private OutputStream out;
+    private BinaryLogEncoder encoder;
+    private boolean autoFlush = true;
+
+    /**
+     * Opens a file for appending, creating it if necessary.
+     * @param file the log file
+     * @throws IOException if the file cannot be opened
+     */
+    @SuppressWarnings("this-escape")
+    public BinaryLogHandler(@NonNull Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        super.setFormatter(new SupportLogFormatter());
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), FileChannelHandler.BUFFER_SIZE);
+        try {
+            encoder = new BinaryLogEncoder(out, (SupportLogFormatter) getFormatter());
+        } catch (IOException | RuntimeException x) {
+            out.close();
+            throw x;
+        }
+    }
+
+    /**
+     * @return the log file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Controls whether every record is written to the file as soon as it is published (the default),
+     * or only when the buffer is full or {@link #flush} is called.
+     */
+    public synchronized void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Sets the formatter whose settings to use, and starts a new session in the file.
+     * @param formatter a {@link SupportLogFormatter} which does not override {@link SupportLogFormatter#format}
+     * @throws IllegalArgumentException if the formatter is not suitable
+     */
+    @Override
+    public synchronized void setFormatter(Formatter formatter) {
+        if (!(formatter instanceof SupportLogFormatter) || ((SupportLogFormatter) formatter).isFormatOverridden()) {
+            throw new IllegalArgumentException("Unsupported formatter " + formatter);
+        }
+        super.setFormatter(formatter);
+        if (out != null) {
+            try {
+                encoder = new BinaryLogEncoder(out, (SupportLogFormatter) formatter);
+            } catch (IOException x) {
+                reportError(null, x, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (out == null || !isLoggable(record)) {
+            return;
+        }
+        try {
+            encoder.write(record);
+            if (autoFlush) {
+                out.flush();
+            }
+        } catch (IOException | RuntimeException x) {
+            reportError(null, x, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException x) {
+            reportError(null, x, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException x) {
+            reportError(null, x, ErrorManager.CLOSE_FAILURE);
+        } finally {
+            out = null;
+        }
+    }
+}
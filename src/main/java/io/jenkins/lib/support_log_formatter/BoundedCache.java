@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A small, fixed-size, lock-free cache keyed by strings.
+ * Each key maps to exactly one slot, and a new entry simply replaces whatever occupied its slot before,
+ * so memory use is bounded and neither lookups nor insertions ever block.
+ * Entries are immutable, so a racy read either sees a complete entry or misses.
+ * @param <V> the type of cached values
+ */
+final class BoundedCache<V> {
+
+    private static final int MAXIMUM_CAPACITY = 1 << 20;
+
+    private record Entry<V>(@NonNull String key, @NonNull V value) {}
+
+    private final Entry<V>[] table;
+    private final int mask;
+
+    /**
+     * @param size the maximum number of entries, rounded up to a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BoundedCache(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + size);
+        }
+        int capacity = size >= MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY : Integer.highestOneBit(size - 1) << 1;
+        table = new Entry[Math.max(capacity, 1)];
+        mask = table.length - 1;
+    }
+
+    @CheckForNull V get(@NonNull String key) {
+        Entry<V> e = table[indexOf(key)];
+        if (e != null && (e.key == key || e.key.equals(key))) {
+            return e.value;
+        }
+        return null;
+    }
+
+    void put(@NonNull String key, @NonNull V value) {
+        table[indexOf(key)] = new Entry<>(key, value);
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    private int indexOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} which writes records to a file as UTF-8, encoding them straight into reusable {@link ByteBuffer}s
+ * instead of going through a {@link String} and a {@link java.io.Writer} as {@link java.util.logging.FileHandler} does.
+ * Records are collected in a set of buffers, which are written with a single gathering {@link FileChannel#write(ByteBuffer[])}
+ * when they are full or the handler is flushed.
+ * <p>
+ * By default every record is written immediately, like {@link java.util.logging.FileHandler}.
+ * When records arrive in batches, for example from an {@link AsyncHandler}, {@link #setAutoFlush} may be turned off
+ * so that a whole batch is written at once.
+ * <p>
+ * Optionally the file is rotated at record boundaries once it reaches a size limit,
+ * keeping older generations as {@code file.1}, {@code file.2}, etc.
+ * {@link RotatingFileHandler} also rolls over by time, and names and compresses old files differently.
+ * It may also maintain a {@link LogIndex} of each file, see {@link #setIndexed}.
+ * The formatter defaults to {@link SupportLogFormatter}; the encoding is always UTF-8.
+ */
+public class FileChannelHandler extends Handler {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int BUFFER_COUNT = 16;
+
+    private final Path file;
+    private final long limit;
+    private final int count;
+    private final ByteBuffer[] buffers;
+    private final StringBuilder text = new StringBuilder(1024);
+    /** Number of calls to {@link #publish} on the stack, which can be more than one when formatting a record logs something. */
+    private int publishDepth;
+    /** Index of the buffer currently being filled; all buffers before it are full and waiting to be written. */
+    private int current;
+    private FileChannel channel;
+    /** Bytes in the file, including those still in the buffers. */
+    private long size;
+    /** Size beyond which the file is rotated; raised by {@link #rotationFailed} so a failing rotation is not retried for every record. */
+    private long rotationSize;
+    private boolean autoFlush = true;
+    private boolean indexed;
+    @CheckForNull
+    private LogIndex.Writer index;
+
+    /**
+     * Creates a handler which appends to a file without ever rotating it.
+     * @param file the log file
+     * @throws IOException if the file cannot be opened
+     */
+    public FileChannelHandler(@NonNull Path file) throws IOException {
+        this(file, 0, 1, false);
+    }
+
+    /**
+     * @param file the log file
+     * @param limit the size in bytes at which to rotate the file, or 0 to never rotate
+     * @param count the number of files to keep including the current one; with 1 the file is truncated on rotation
+     * @param directBuffers whether to encode into direct rather than heap buffers
+     * @throws IOException if the file cannot be opened
+     */
+    @SuppressWarnings("this-escape")
+    public FileChannelHandler(@NonNull Path file, long limit, int count, boolean directBuffers) throws IOException {
+        if (limit < 0 || count < 1) {
+            throw new IllegalArgumentException("Invalid limit " + limit + " or count " + count);
+        }
+        this.file = file;
+        this.limit = limit;
+        this.count = count;
+        rotationSize = limit;
+        buffers = new ByteBuffer[BUFFER_COUNT];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = directBuffers ? ByteBuffer.allocateDirect(BUFFER_SIZE) : ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        setEncoding(StandardCharsets.UTF_8.name());
+        setFormatter(new SupportLogFormatter());
+        open();
+    }
+
+    /**
+     * @return the current log file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Controls whether every record is written to the file as soon as it is published (the default),
+     * or only when the buffers are full or {@link #flush} is called.
+     */
+    public synchronized void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Controls whether a {@link LogIndex} is kept next to the log file, and next to each older generation.
+     * When turned on, records already in the file which are not indexed yet are indexed first.
+     * This only works with {@link SupportLogFormatter} or another formatter producing the same layout.
+     */
+    public synchronized void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (indexed && index == null) {
+                writeBuffers();
+                index = LogIndex.Writer.open(file, LogIndex.INTERVAL);
+            } else if (!indexed && index != null) {
+                closeIndex();
+            }
+        } catch (IOException x) {
+            reportError(null, x, ErrorManager.OPEN_FAILURE);
+        }
+    }
+
+    /**
+     * @return whether a {@link LogIndex} is kept next to the log file
+     */
+    public synchronized boolean isIndexed() {
+        return indexed;
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (channel == null || !isLoggable(record)) {
+            return;
+        }
+        // a record logged while formatting another, e.g. from a parameter's toString, must not clobber the outer record's text
+        StringBuilder text = publishDepth == 0 ? this.text : new StringBuilder(256);
+        text.setLength(0);
+        publishDepth++;
+        try {
+            Formatter formatter = getFormatter();
+            if (formatter instanceof SupportLogFormatter) {
+                ((SupportLogFormatter) formatter).formatTo(record, text);
+            } else {
+                text.append(formatter.format(record));
+            }
+        } catch (RuntimeException x) {
+            reportError(null, x, ErrorManager.FORMAT_FAILURE);
+            return;
+        } finally {
+            publishDepth--;
+        }
+        try {
+            int length = Utf8Encoder.encodedLength(text);
+            if (size > 0 && isRotationDue(size, length)) {
+                try {
+                    rotate();
+                } catch (IOException | RuntimeException x) {
+                    // keep appending to the current file rather than losing the record
+                    rotationFailed(size);
+                    reportError(null, x, ErrorManager.WRITE_FAILURE);
+                }
+                if (channel == null) {
+                    return;
+                }
+            }
+            append(text, length);
+            long start = size;
+            size += length;
+            if (index != null) {
+                index.append(start, size, record.getMillis());
+            }
+            if (autoFlush) {
+                writeBuffers();
+            }
+        } catch (IOException | RuntimeException x) {
+            reportError(null, x, ErrorManager.WRITE_FAILURE);
+        }
+        if (text == this.text && text.capacity() > BUFFER_SIZE) {
+            text.setLength(0);
+            text.trimToSize();
+        }
+    }
+
+    /**
+     * Encodes text into the buffers, writing them out if they are full.
+     */
+    private void append(CharSequence s, int length) throws IOException {
+        if (length > BUFFER_SIZE) {
+            writeBuffers();
+            ByteBuffer large = ByteBuffer.allocate(length);
+            Utf8Encoder.encode(s, large);
+            large.flip();
+            writeFully(new ByteBuffer[] {large}, 1);
+            return;
+        }
+        if (buffers[current].remaining() < length) {
+            if (current == buffers.length - 1) {
+                writeBuffers();
+            } else {
+                current++;
+            }
+        }
+        Utf8Encoder.encode(s, buffers[current]);
+    }
+
+    private void writeBuffers() throws IOException {
+        int used = buffers[current].position() > 0 ? current + 1 : current;
+        if (used == 0) {
+            return;
+        }
+        for (int i = 0; i < used; i++) {
+            buffers[i].flip();
+        }
+        try {
+            writeFully(buffers, used);
+        } finally {
+            for (int i = 0; i < used; i++) {
+                buffers[i].clear();
+            }
+            current = 0;
+        }
+    }
+
+    private void writeFully(ByteBuffer[] srcs, int length) throws IOException {
+        int first = 0;
+        while (first < length) {
+            channel.write(srcs, first, length - first);
+            while (first < length && !srcs[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
+    /**
+     * Decides whether to rotate the file before writing the next record.
+     * @param size the current size of the file in bytes, which is never 0
+     * @param length the size in bytes of the next record
+     * @return whether to rotate the file first
+     */
+    protected boolean isRotationDue(long size, int length) {
+        return limit > 0 && size + length > rotationSize;
+    }
+
+    /**
+     * Called when rotating the file failed, so that rotation is not attempted again, and the failure reported, for every record.
+     * By default the next attempt is made once the file has grown by another size limit.
+     * @param size the current size of the file in bytes
+     */
+    protected void rotationFailed(long size) {
+        rotationSize = size + limit;
+    }
+
+    private void rotate() throws IOException {
+        writeBuffers();
+        closeChannel();
+        try {
+            archive(file);
+            rotationSize = limit;
+        } finally {
+            // if archiving failed, carry on with the current file
+            open();
+        }
+    }
+
+    /**
+     * Moves a complete log file out of the way during rotation.
+     * By default this shifts the previous generations and renames the file to {@code file.1},
+     * or simply deletes it if only one file is to be kept.
+     * The {@link LogIndex#sidecar} of each file, if any, goes along with it.
+     * If this fails, the error is reported and records continue to be appended to the file
+     * until the next attempt, which {@link #rotationFailed} puts off.
+     * @param file the closed log file
+     */
+    protected void archive(@NonNull Path file) throws IOException {
+        if (count <= 1) {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(LogIndex.sidecar(file));
+            return;
+        }
+        Files.deleteIfExists(generation(count - 1));
+        Files.deleteIfExists(LogIndex.sidecar(generation(count - 1)));
+        for (int i = count - 2; i >= 1; i--) {
+            move(generation(i), generation(i + 1));
+        }
+        move(file, generation(1));
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        if (Files.exists(from)) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (Files.exists(LogIndex.sidecar(from))) {
+            Files.move(LogIndex.sidecar(from), LogIndex.sidecar(to), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(LogIndex.sidecar(to));
+        }
+    }
+
+    /**
+     * @return the path of an older generation of the log file
+     */
+    protected Path generation(int i) {
+        return file.resolveSibling(file.getFileName() + "." + i);
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        if (indexed) {
+            try {
+                index = LogIndex.Writer.open(file, LogIndex.INTERVAL);
+            } catch (IOException x) {
+                // the log itself is more important than its index
+                reportError(null, x, ErrorManager.OPEN_FAILURE);
+            }
+        }
+        String head = getFormatter() == null ? "" : getFormatter().getHead(this);
+        if (!head.isEmpty() && size == 0) {
+            append(head, Utf8Encoder.encodedLength(head));
+            size += Utf8Encoder.encodedLength(head);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            String tail = getFormatter() == null ? "" : getFormatter().getTail(this);
+            if (!tail.isEmpty()) {
+                append(tail, Utf8Encoder.encodedLength(tail));
+            }
+            writeBuffers();
+        } finally {
+            try {
+                closeIndex();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void closeIndex() throws IOException {
+        if (index != null) {
+            try {
+                index.close();
+            } finally {
+                index = null;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            writeBuffers();
+        } catch (IOException x) {
+            reportError(null, x, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException x) {
+            reportError(null, x, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional instrumentation of {@link SupportLogFormatter}, covering all instances in the JVM.
+ * Off by default, in which case the only cost is reading a {@code null} field per record;
+ * turn it on with {@link #enable} or the system property {@code io.jenkins.lib.support_log_formatter.SupportLogFormatter.METRICS}.
+ * <p>
+ * While enabled, figures are available from {@link #get} and as an MXBean named {@value #OBJECT_NAME}.
+ * All counters are {@link LongAdder}s, which spread concurrent updates over several cells,
+ * so that the metrics do not become a point of contention between logging threads.
+ */
+public final class FormatterMetrics implements FormatterMetricsMXBean {
+
+    public static final String OBJECT_NAME = "io.jenkins.lib.support_log_formatter:type=FormatterMetrics";
+
+    /** The caches whose hit rates are reported. */
+    enum Cache {
+        ABBREVIATION("abbreviation"),
+        MESSAGE_TEMPLATE("messageTemplate"),
+        RECORD_MEMO("recordMemo"),
+        THROWABLE_MEMO("throwableMemo");
+
+        final String displayName;
+
+        Cache(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    /** Number of power of two latency buckets; the last one collects everything from about a second on. */
+    static final int LATENCY_BUCKETS = 31;
+
+    /** Number of stack traces kept by {@link #getLargestStackTraces}. */
+    static final int LARGEST_STACK_TRACES = 10;
+
+    /**
+     * The enabled metrics, if any.
+     * Read once per record by the formatter.
+     */
+    @CheckForNull
+    static volatile FormatterMetrics current;
+
+    static {
+        if (Boolean.getBoolean(SupportLogFormatter.class.getName() + ".METRICS")) {
+            enable();
+        }
+    }
+
+    private record LargeTrace(String type, int length) {}
+
+    private final ConcurrentHashMap<String, LongAdder> levels = new ConcurrentHashMap<>();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder formatNanos = new LongAdder();
+    private final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS];
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final LongAdder throwables = new LongAdder();
+    private final LongAdder throwableNanos = new LongAdder();
+    private final LongAdder[] hits = new LongAdder[Cache.values().length];
+    private final LongAdder[] misses = new LongAdder[Cache.values().length];
+    /** Sorted by length, longest first; guarded by itself. */
+    private final List<LargeTrace> largest = new ArrayList<>();
+    /** Length a trace must exceed to be added to {@link #largest}, so that most renderings need no lock. */
+    private volatile int largestThreshold;
+
+    FormatterMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LongAdder();
+        }
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+            misses[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Turns on instrumentation and registers the MXBean with the platform MBean server, unless already enabled.
+     * @return the metrics now being collected
+     */
+    @NonNull
+    public static synchronized FormatterMetrics enable() {
+        FormatterMetrics metrics = current;
+        if (metrics == null) {
+            metrics = new FormatterMetrics();
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName(OBJECT_NAME);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(metrics, name);
+            } catch (JMException | SecurityException x) {
+                // the metrics are still available from get()
+            }
+            current = metrics;
+        }
+        return metrics;
+    }
+
+    /**
+     * Turns off instrumentation and unregisters the MXBean. Figures collected so far are discarded.
+     */
+    public static synchronized void disable() {
+        if (current == null) {
+            return;
+        }
+        current = null;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | SecurityException x) {
+            // nothing more can be done
+        }
+    }
+
+    /**
+     * @return the metrics being collected, or null if instrumentation is off
+     */
+    @CheckForNull
+    public static FormatterMetrics get() {
+        return current;
+    }
+
+    void recordFormatted(@NonNull Level level, int length, long nanos) {
+        String name = level.getName();
+        LongAdder count = levels.get(name);
+        if (count == null) {
+            count = levels.computeIfAbsent(name, k -> new LongAdder());
+        }
+        count.increment();
+        records.increment();
+        characters.add(length);
+        formatNanos.add(nanos);
+        latencies[bucket(nanos)].increment();
+        maxLatency.accumulate(nanos);
+    }
+
+    /**
+     * @param type the class name of the throwable
+     * @param length the length of the rendering, or -1 if it was not collected
+     */
+    void recordThrowable(@NonNull String type, int length, long nanos) {
+        throwables.increment();
+        throwableNanos.add(nanos);
+        if (length > largestThreshold) {
+            synchronized (largest) {
+                int i = 0;
+                while (i < largest.size() && largest.get(i).length > length) {
+                    i++;
+                }
+                for (int j = i; j < largest.size() && largest.get(j).length == length; j++) {
+                    if (largest.get(j).type.equals(type)) {
+                        // most likely the same trace logged again
+                        return;
+                    }
+                }
+                if (i < LARGEST_STACK_TRACES) {
+                    largest.add(i, new LargeTrace(type, length));
+                    if (largest.size() > LARGEST_STACK_TRACES) {
+                        largest.remove(LARGEST_STACK_TRACES);
+                    }
+                    if (largest.size() == LARGEST_STACK_TRACES) {
+                        largestThreshold = largest.get(LARGEST_STACK_TRACES - 1).length;
+                    }
+                }
+            }
+        }
+    }
+
+    void recordLookup(@NonNull Cache cache, boolean hit) {
+        (hit ? hits : misses)[cache.ordinal()].increment();
+    }
+
+    static int bucket(long nanos) {
+        return nanos <= 1 ? 0 : Math.min(63 - Long.numberOfLeadingZeros(nanos), LATENCY_BUCKETS - 1);
+    }
+
+    @Override
+    public long getRecordsFormatted() {
+        return records.sum();
+    }
+
+    @Override
+    public long getRecordsReused() {
+        return hits[Cache.RECORD_MEMO.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getRecordsByLevel() {
+        Map<String, Long> result = new TreeMap<>();
+        levels.forEach((name, count) -> result.put(name, count.sum()));
+        return result;
+    }
+
+    @Override
+    public long getOutputCharacters() {
+        return characters.sum();
+    }
+
+    @Override
+    public long getFormatNanos() {
+        return formatNanos.sum();
+    }
+
+    @Override
+    public long[] getFormatLatencyHistogram() {
+        long[] histogram = new long[latencies.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencies[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public long getFormatLatencyMedianNanos() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getFormatLatency99thPercentileNanos() {
+        return percentile(0.99);
+    }
+
+    /**
+     * @return the upper bound of the bucket containing the given fraction of latencies, capped by the maximum seen
+     */
+    long percentile(double fraction) {
+        long[] histogram = getFormatLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < histogram.length - 1; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.min((2L << i) - 1, getFormatLatencyMaxNanos());
+            }
+        }
+        return getFormatLatencyMaxNanos();
+    }
+
+    @Override
+    public long getFormatLatencyMaxNanos() {
+        return maxLatency.get();
+    }
+
+    @Override
+    public long getThrowablesRendered() {
+        return throwables.sum();
+    }
+
+    @Override
+    public long getThrowableNanos() {
+        return throwableNanos.sum();
+    }
+
+    @Override
+    public List<String> getLargestStackTraces() {
+        List<String> result = new ArrayList<>();
+        synchronized (largest) {
+            for (LargeTrace trace : largest) {
+                result.add(trace.type + " (" + trace.length + " characters)");
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRates() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Cache cache : Cache.values()) {
+            long hit = hits[cache.ordinal()].sum();
+            long lookups = hit + misses[cache.ordinal()].sum();
+            result.put(cache.displayName, lookups == 0 ? 0.0 : (double) hit / lookups);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getCacheLookups() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Cache cache : Cache.values()) {
+            result.put(cache.displayName, hits[cache.ordinal()].sum() + misses[cache.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * Sets all counters back to zero. Updates made concurrently may or may not survive.
+     */
+    @Override
+    public void reset() {
+        levels.clear();
+        records.reset();
+        characters.reset();
+        formatNanos.reset();
+        for (LongAdder latency : latencies) {
+            latency.reset();
+        }
+        maxLatency.reset();
+        throwables.reset();
+        throwableNanos.reset();
+        for (int i = 0; i < hits.length; i++) {
+            hits[i].reset();
+            misses[i].reset();
+        }
+        synchronized (largest) {
+            largest.clear();
+            largestThreshold = 0;
+        }
+    }
+}
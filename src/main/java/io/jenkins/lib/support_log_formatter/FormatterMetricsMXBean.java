@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface of {@link FormatterMetrics}, registered as {@value FormatterMetrics#OBJECT_NAME}.
+ */
+public interface FormatterMetricsMXBean {
+
+    /**
+     * @return the number of records formatted, not including ones whose output was reused
+     */
+    long getRecordsFormatted();
+
+    /**
+     * @return the number of records whose output was reused from formatting them just before, rather than formatted again;
+     *     these are not included in any of the other figures about records
+     */
+    long getRecordsReused();
+
+    /**
+     * @return the number of records formatted by level name
+     */
+    Map<String, Long> getRecordsByLevel();
+
+    /**
+     * @return the number of characters produced by formatting records
+     */
+    long getOutputCharacters();
+
+    /**
+     * @return the total time spent formatting records, in nanoseconds
+     */
+    long getFormatNanos();
+
+    /**
+     * @return a histogram of the time taken to format a record, where element {@code i} counts records
+     *     which took at least {@code 2^i} and less than {@code 2^(i+1)} nanoseconds (element 0 also counts shorter times)
+     */
+    long[] getFormatLatencyHistogram();
+
+    /**
+     * @return an upper bound of the median time taken to format a record, in nanoseconds
+     */
+    long getFormatLatencyMedianNanos();
+
+    /**
+     * @return an upper bound of the 99th percentile of the time taken to format a record, in nanoseconds
+     */
+    long getFormatLatency99thPercentileNanos();
+
+    /**
+     * @return the longest time taken to format a record, in nanoseconds
+     */
+    long getFormatLatencyMaxNanos();
+
+    /**
+     * @return the number of throwables rendered, including as part of a record
+     */
+    long getThrowablesRendered();
+
+    /**
+     * @return the total time spent rendering throwables, in nanoseconds
+     */
+    long getThrowableNanos();
+
+    /**
+     * @return the longest stack trace renderings seen, longest first, as type and length
+     */
+    List<String> getLargestStackTraces();
+
+    /**
+     * @return the fraction of lookups which were hits, by cache
+     */
+    Map<String, Double> getCacheHitRates();
+
+    /**
+     * @return the number of lookups, by cache
+     */
+    Map<String, Long> getCacheLookups();
+
+    /**
+     * Sets all counters back to zero.
+     */
+    void reset();
+}
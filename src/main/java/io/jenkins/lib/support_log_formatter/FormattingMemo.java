@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Remembers the most recent formatting results of the current thread, so that a record published to several handlers
+ * on the same thread, as {@link java.util.logging.Logger#log(LogRecord)} does, is only formatted once.
+ * <p>
+ * Records and throwables are only referenced weakly and compared by identity, so nothing is kept alive after logging,
+ * and results are forgotten as soon as their record or throwable is found to have been collected.
+ * Since records are mutable, a cheap snapshot of their fields is compared too; parameters and throwables are
+ * compared by {@linkplain System#identityHashCode identity hash} to avoid holding on to them.
+ * So a parameter array reused with different elements is noticed, but a parameter which itself changed in place
+ * (such as a {@link StringBuilder} appended to) between two formatting calls on the same record is not.
+ * Only short results are remembered, so that an idle thread does not pin much memory.
+ */
+final class FormattingMemo {
+
+    /** Number of formatters whose last result is remembered per thread. */
+    private static final int SLOTS = 4;
+
+    /** Results longer than this are not remembered. */
+    static final int MAX_LENGTH = 8 * 1024;
+
+    private static final ThreadLocal<FormattingMemo> memos = ThreadLocal.withInitial(FormattingMemo::new);
+
+    private final RecordEntry[] records = new RecordEntry[SLOTS];
+    private int next;
+    @CheckForNull
+    private ThrowableEntry throwable;
+
+    FormattingMemo() {}
+
+    static FormattingMemo get() {
+        return memos.get();
+    }
+
+    /**
+     * @param owner identifies formatters producing the same output
+     * @return the text remembered for this record, if it has not changed since
+     */
+    @CheckForNull
+    String get(@NonNull Object owner, @NonNull LogRecord record) {
+        expungeStaleEntries();
+        for (RecordEntry entry : records) {
+            if (entry != null && entry.owner == owner && entry.refersTo(record)) {
+                return entry.matches(record) ? entry.text : null;
+            }
+        }
+        return null;
+    }
+
+    void put(@NonNull Object owner, @NonNull LogRecord record, @NonNull String text) {
+        if (text.length() > MAX_LENGTH) {
+            return;
+        }
+        RecordEntry entry = new RecordEntry(owner, record, text);
+        for (int i = 0; i < SLOTS; i++) {
+            if (records[i] != null && records[i].owner == owner) {
+                records[i] = entry;
+                return;
+            }
+        }
+        records[next] = entry;
+        next = (next + 1) % SLOTS;
+    }
+
+    /**
+     * @return the rendering remembered for this throwable, if it has not visibly changed since
+     */
+    @CheckForNull
+    String get(@NonNull Throwable t) {
+        expungeStaleEntries();
+        ThrowableEntry entry = throwable;
+        return entry != null && entry.refersTo(t) && entry.matches(t) ? entry.text : null;
+    }
+
+    void put(@NonNull Throwable t, @NonNull String text) {
+        if (text.length() <= MAX_LENGTH) {
+            throwable = new ThrowableEntry(t, text);
+        }
+    }
+
+    /**
+     * Forgets results whose record or throwable has been collected, so that their text can be collected too.
+     */
+    private void expungeStaleEntries() {
+        for (int i = 0; i < SLOTS; i++) {
+            if (records[i] != null && records[i].refersTo(null)) {
+                records[i] = null;
+            }
+        }
+        if (throwable != null && throwable.refersTo(null)) {
+            throwable = null;
+        }
+    }
+
+    /**
+     * @return the number of results remembered, not counting those whose record or throwable has been collected
+     */
+    int size() {
+        expungeStaleEntries();
+        int size = throwable != null ? 1 : 0;
+        for (RecordEntry entry : records) {
+            if (entry != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Simulates collection of all remembered records and throwables.
+     */
+    void clearReferences() {
+        for (RecordEntry entry : records) {
+            if (entry != null) {
+                entry.clear();
+            }
+        }
+        if (throwable != null) {
+            throwable.clear();
+        }
+    }
+
+    private static final class RecordEntry extends WeakReference<LogRecord> {
+
+        final Object owner;
+        final String text;
+        private final long millis;
+        private final long threadId;
+        private final Level level;
+        private final String message;
+        private final int[] parameters;
+        private final int thrown;
+        private final String sourceClassName;
+        private final String sourceMethodName;
+        private final String loggerName;
+        private final int resourceBundle;
+
+        RecordEntry(Object owner, LogRecord record, String text) {
+            super(record);
+            this.owner = owner;
+            this.text = text;
+            millis = record.getMillis();
+            threadId = record.getLongThreadID();
+            level = record.getLevel();
+            message = record.getMessage();
+            parameters = identityHashCodes(record.getParameters());
+            thrown = System.identityHashCode(record.getThrown());
+            sourceClassName = record.getSourceClassName();
+            sourceMethodName = record.getSourceMethodName();
+            loggerName = record.getLoggerName();
+            resourceBundle = System.identityHashCode(record.getResourceBundle());
+        }
+
+        boolean matches(LogRecord record) {
+            return millis == record.getMillis()
+                    && threadId == record.getLongThreadID()
+                    && level == record.getLevel()
+                    && message == record.getMessage()
+                    && sameParameters(record.getParameters())
+                    && thrown == System.identityHashCode(record.getThrown())
+                    && Objects.equals(sourceClassName, record.getSourceClassName())
+                    && Objects.equals(sourceMethodName, record.getSourceMethodName())
+                    && Objects.equals(loggerName, record.getLoggerName())
+                    && resourceBundle == System.identityHashCode(record.getResourceBundle());
+        }
+
+        @CheckForNull
+        private static int[] identityHashCodes(@CheckForNull Object[] parameters) {
+            if (parameters == null) {
+                return null;
+            }
+            int[] hashes = new int[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                hashes[i] = System.identityHashCode(parameters[i]);
+            }
+            return hashes;
+        }
+
+        private boolean sameParameters(@CheckForNull Object[] current) {
+            if (parameters == null || current == null) {
+                return parameters == null && current == null;
+            }
+            if (parameters.length != current.length) {
+                return false;
+            }
+            for (int i = 0; i < current.length; i++) {
+                if (parameters[i] != System.identityHashCode(current[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class ThrowableEntry extends WeakReference<Throwable> {
+
+        final String text;
+        private final int cause;
+        private final int suppressed;
+        private final int frames;
+
+        ThrowableEntry(Throwable t, String text) {
+            super(t);
+            this.text = text;
+            cause = System.identityHashCode(t.getCause());
+            suppressed = t.getSuppressed().length;
+            frames = t.getStackTrace().length;
+        }
+
+        boolean matches(Throwable t) {
+            return cause == System.identityHashCode(t.getCause())
+                    && suppressed == t.getSuppressed().length
+                    && frames == t.getStackTrace().length;
+        }
+    }
+}
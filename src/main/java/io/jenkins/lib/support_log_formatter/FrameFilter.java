@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shortens the frames printed for a throwable, by folding runs of frames from uninteresting classes
+ * (reflection, Groovy, servlet filter chains and the like) into a single line, and by limiting the number of frames printed.
+ * <p>
+ * Classes are matched by name prefix. The prefixes are sorted and any prefix covered by a shorter one is dropped,
+ * so that the only candidate for a class name is the greatest prefix not after it, found by binary search.
+ */
+final class FrameFilter {
+
+    private final String[] prefixes;
+    private final int maxFrames;
+
+    /**
+     * @param prefixes class name prefixes of frames to fold, such as {@code java.lang.reflect.}
+     * @param maxFrames the maximum number of frames to print per throwable, or 0 for no limit
+     */
+    FrameFilter(@NonNull List<String> prefixes, int maxFrames) {
+        if (maxFrames < 0) {
+            throw new IllegalArgumentException("Invalid maximum number of frames " + maxFrames);
+        }
+        String[] sorted = prefixes.stream().filter(p -> !p.isEmpty()).sorted().distinct().toArray(String[]::new);
+        List<String> minimal = new ArrayList<>();
+        for (String prefix : sorted) {
+            // anything starting with a prefix sorts right after it
+            if (minimal.isEmpty() || !prefix.startsWith(minimal.get(minimal.size() - 1))) {
+                minimal.add(prefix);
+            }
+        }
+        this.prefixes = minimal.toArray(new String[0]);
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * @param prefixes comma-separated class name prefixes
+     * @param maxFrames the maximum number of frames to print per throwable, or 0 for no limit
+     * @return a filter, or null if it would print all frames anyway
+     */
+    @CheckForNull
+    static FrameFilter of(@NonNull String prefixes, int maxFrames) {
+        List<String> list = new ArrayList<>();
+        for (String prefix : prefixes.split(",")) {
+            if (!prefix.isBlank()) {
+                list.add(prefix.strip());
+            }
+        }
+        if (list.isEmpty() && maxFrames <= 0) {
+            return null;
+        }
+        return new FrameFilter(list, Math.max(maxFrames, 0));
+    }
+
+    /**
+     * @return whether frames of this class are folded
+     */
+    boolean folds(@NonNull String className) {
+        String[] prefixes = this.prefixes;
+        if (prefixes.length == 0) {
+            return false;
+        }
+        int i = Arrays.binarySearch(prefixes, className);
+        if (i >= 0) {
+            return true;
+        }
+        int floor = -i - 2;
+        return floor >= 0 && className.startsWith(prefixes[floor]);
+    }
+
+    /**
+     * Prints frames like {@code \tat some.Class.method(Class.java:123)}, replacing folded runs and frames beyond the limit
+     * by {@code \t... N frames omitted}. A single matching frame is printed as is, since folding it would save nothing.
+     * @param s where to print
+     * @param trace the frames of a throwable
+     * @param end the number of frames to consider, the rest being shared with an enclosing throwable
+     * @param prefix indentation of each line
+     */
+    void appendFrames(@NonNull Appendable s, @NonNull StackTraceElement[] trace, int end, @NonNull String prefix) throws IOException {
+        int printed = 0;
+        int i = 0;
+        while (i < end) {
+            if (maxFrames > 0 && printed == maxFrames) {
+                appendOmitted(s, end - i, prefix);
+                return;
+            }
+            int run = i;
+            while (run < end && folds(trace[run].getClassName())) {
+                run++;
+            }
+            if (run - i > 1) {
+                appendOmitted(s, run - i, prefix);
+                i = run;
+            } else {
+                s.append(prefix).append("\tat ").append(trace[i].toString()).append(SupportLogFormatter.LINE_SEPARATOR);
+                printed++;
+                i++;
+            }
+        }
+    }
+
+    private static void appendOmitted(Appendable s, int count, String prefix) throws IOException {
+        s.append(prefix).append("\t... ").append(Integer.toString(count)).append(" frames omitted").append(SupportLogFormatter.LINE_SEPARATOR);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Applies {@link SupportLogFormatter#transformMessage(String, String)} to text as it is written,
+ * so that output of arbitrary length can be streamed to its destination without being collected first.
+ * Since a line break at the very end of the text is treated differently from one in the middle,
+ * the last line break seen is held back until either more text arrives or {@link #finish} is called.
+ */
+final class LineBreakEscapingWriter extends Writer {
+
+    private enum Pending { NONE, CR, LF, CRLF }
+
+    private final Appendable out;
+    private final String indent;
+    private Pending pending = Pending.NONE;
+
+    LineBreakEscapingWriter(@NonNull Appendable out, @NonNull String indent) {
+        this.out = out;
+        this.indent = indent;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        append((char) c);
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        if (SupportLogFormatter.DO_NOT_FORMAT_FOR_CLI) {
+            out.append(c);
+            return this;
+        }
+        if (pending == Pending.CR && c == '\n') {
+            pending = Pending.CRLF;
+            return this;
+        }
+        flushPending();
+        if (c == '\r') {
+            pending = Pending.CR;
+        } else if (c == '\n') {
+            pending = Pending.LF;
+        } else {
+            out.append(c);
+        }
+        return this;
+    }
+
+    @Override
+    public void write(@NonNull char[] cbuf, int off, int len) throws IOException {
+        append(CharBuffer.wrap(cbuf), off, off + len);
+    }
+
+    @Override
+    public void write(@NonNull String str, int off, int len) throws IOException {
+        append(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        CharSequence s = csq == null ? "null" : csq;
+        return append(s, 0, s.length());
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            return append("null", start, end);
+        }
+        if (SupportLogFormatter.DO_NOT_FORMAT_FOR_CLI) {
+            out.append(csq, start, end);
+            return this;
+        }
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = csq.charAt(i);
+            if (c == '\r' || c == '\n') {
+                if (runStart < i) {
+                    flushPending();
+                    out.append(csq, runStart, i);
+                }
+                append(c);
+                runStart = i + 1;
+            }
+        }
+        if (runStart < end) {
+            flushPending();
+            out.append(csq, runStart, end);
+        }
+        return this;
+    }
+
+    /**
+     * Emits the line break indicator for a held back line break, now that it is known not to be the last character.
+     */
+    private void flushPending() throws IOException {
+        switch (pending) {
+            case CR:
+                out.append(SupportLogFormatter.LINE_SEPARATOR).append(indent).append("[CR]").append(SupportLogFormatter.NEWLINE_INDICATOR);
+                break;
+            case LF:
+                out.append(SupportLogFormatter.LINE_SEPARATOR).append(indent).append("[LF]").append(SupportLogFormatter.NEWLINE_INDICATOR);
+                break;
+            case CRLF:
+                out.append(SupportLogFormatter.LINE_SEPARATOR).append(indent).append("[CRLF]").append(SupportLogFormatter.NEWLINE_INDICATOR);
+                break;
+            default:
+                break;
+        }
+        pending = Pending.NONE;
+    }
+
+    /**
+     * Writes out a trailing line break as {@link SupportLogFormatter#transformMessage(String, String)} would.
+     * Must be called once all text has been written.
+     */
+    void finish() throws IOException {
+        switch (pending) {
+            case CR:
+                out.append('\r');
+                break;
+            case LF:
+                out.append('\n');
+                break;
+            case CRLF:
+                out.append(SupportLogFormatter.LINE_SEPARATOR);
+                break;
+            default:
+                break;
+        }
+        pending = Pending.NONE;
+    }
+
+    @Override
+    public void flush() {
+        // nothing is buffered except a possible trailing line break, which must be held back until finish
+    }
+
+    @Override
+    public void close() {
+        // the destination is owned by the caller
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A sparse index from time to byte offsets in a file written with {@link SupportLogFormatter},
+ * kept in a sidecar file next to it so that the records of a time window can be read without scanning the whole file.
+ * <p>
+ * The file is divided into segments of roughly {@link #INTERVAL} bytes which end at record boundaries.
+ * For each segment the sidecar holds its end offset and the earliest and latest timestamps of its records,
+ * as three big-endian longs after an eight byte header.
+ * Records from different threads may be written slightly out of time order, and since both extremes are kept
+ * a {@link #query} still returns every record of the window, along with some records around it.
+ * <p>
+ * {@link FileChannelHandler#setIndexed} maintains the index while writing; {@link #rebuild} creates it for an existing file.
+ */
+public final class LogIndex {
+
+    /**
+     * Approximate number of bytes of log covered by each entry of the index.
+     */
+    static final long INTERVAL = Long.getLong(LogIndex.class.getName() + ".INTERVAL", 64 * 1024);
+
+    private static final byte[] MAGIC = "SLFIDX1\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int ENTRY_SIZE = 3 * Long.BYTES;
+
+    /**
+     * A part of a log file.
+     * @param start the offset of the first byte
+     * @param end the offset after the last byte
+     */
+    public record Range(long start, long end) {
+        public boolean isEmpty() {
+            return start >= end;
+        }
+    }
+
+    private final long size;
+    private final long[] ends;
+    /** For each segment, the latest timestamp in it or any segment before it. */
+    private final long[] latestUpTo;
+    /** For each segment, the earliest timestamp in it or any segment after it. */
+    private final long[] earliestFrom;
+
+    private LogIndex(long size, long[] ends, long[] mins, long[] maxs) {
+        this.size = size;
+        this.ends = ends;
+        int n = ends.length;
+        latestUpTo = new long[n];
+        earliestFrom = new long[n];
+        for (int i = 0; i < n; i++) {
+            latestUpTo[i] = i == 0 ? maxs[i] : Math.max(latestUpTo[i - 1], maxs[i]);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            earliestFrom[i] = i == n - 1 ? mins[i] : Math.min(earliestFrom[i + 1], mins[i]);
+        }
+    }
+
+    /**
+     * @return the sidecar file holding the index of a log file
+     */
+    @NonNull
+    public static Path sidecar(@NonNull Path log) {
+        return log.resolveSibling(log.getFileName() + ".idx");
+    }
+
+    /**
+     * Loads the index of a log file.
+     * @param log the log file, whose {@link #sidecar} must exist
+     * @return the index as of now; the log file may keep growing, and anything not yet indexed is included in every query
+     * @throws IOException if either file cannot be read or the sidecar is not an index
+     */
+    @NonNull
+    public static LogIndex read(@NonNull Path log) throws IOException {
+        long size = Files.size(log);
+        try (FileChannel channel = FileChannel.open(sidecar(log), StandardOpenOption.READ)) {
+            int count = checkHeader(channel, sidecar(log));
+            ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading
+            }
+            buffer.flip();
+            count = buffer.remaining() / ENTRY_SIZE;
+            long[] ends = new long[count];
+            long[] mins = new long[count];
+            long[] maxs = new long[count];
+            for (int i = 0; i < count; i++) {
+                ends[i] = buffer.getLong();
+                mins[i] = buffer.getLong();
+                maxs[i] = buffer.getLong();
+            }
+            return new LogIndex(size, ends, mins, maxs);
+        }
+    }
+
+    /**
+     * Checks the header of a sidecar file.
+     * @return the number of complete entries in it
+     */
+    private static int checkHeader(FileChannel channel, Path sidecar) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+        while (header.hasRemaining() && channel.read(header, header.position()) != -1) {
+            // keep reading
+        }
+        if (header.hasRemaining() || !Arrays.equals(header.array(), MAGIC)) {
+            throw new IOException(sidecar + " is not a log index");
+        }
+        channel.position(MAGIC.length);
+        return Math.toIntExact((channel.size() - MAGIC.length) / ENTRY_SIZE);
+    }
+
+    /**
+     * Finds the part of the log file holding the records of a time window.
+     * @param fromMillis the start of the window, inclusive
+     * @param toMillis the end of the window, exclusive
+     * @return a range starting at a record boundary, which contains all records of the window
+     */
+    @NonNull
+    public Range query(long fromMillis, long toMillis) {
+        int n = ends.length;
+        long indexed = n == 0 ? 0 : ends[n - 1];
+        // first segment which may hold a record at or after the start of the window
+        int first = firstIndex(latestUpTo, fromMillis);
+        long start = first == n ? indexed : first == 0 ? 0 : ends[first - 1];
+        long end;
+        if (size > indexed) {
+            end = size;
+        } else {
+            // last segment which may hold a record before the end of the window
+            int last = firstIndex(earliestFrom, toMillis) - 1;
+            end = last < 0 ? 0 : ends[last];
+        }
+        start = Math.min(start, size);
+        return new Range(start, Math.max(start, Math.min(end, size)));
+    }
+
+    /**
+     * @return the index of the first element of a sorted array which is at least {@code key}, or the length of the array
+     */
+    private static int firstIndex(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates the index of an existing log file from scratch, replacing any existing sidecar file.
+     * @param log a file written with {@link SupportLogFormatter}
+     * @throws IOException if either file cannot be read or written
+     */
+    public static void rebuild(@NonNull Path log) throws IOException {
+        Files.deleteIfExists(sidecar(log));
+        Writer.open(log, INTERVAL).close();
+    }
+
+    /**
+     * Appends to the index of a log file as records are appended to the log.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final long interval;
+        private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        private long segmentStart;
+        private long segmentEnd;
+        private long min;
+        private long max;
+
+        private Writer(FileChannel channel, long interval, long segmentStart) {
+            this.channel = channel;
+            this.interval = interval;
+            this.segmentStart = segmentStart;
+            this.segmentEnd = segmentStart;
+        }
+
+        /**
+         * Opens the index of a log file for appending, creating it if necessary.
+         * Entries past the end of the log are dropped, and any records of the log which are not indexed yet are added.
+         * @param log the log file, which need not exist yet
+         * @param interval the approximate number of bytes per entry
+         */
+        static Writer open(@NonNull Path log, long interval) throws IOException {
+            Path sidecar = sidecar(log);
+            long size = Files.exists(log) ? Files.size(log) : 0;
+            FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long indexed = 0;
+                if (channel.size() == 0) {
+                    channel.write(ByteBuffer.wrap(MAGIC));
+                } else {
+                    int count = checkHeader(channel, sidecar);
+                    ByteBuffer end = ByteBuffer.allocate(Long.BYTES);
+                    // drop entries for parts of the log which were lost, for example because it was truncated
+                    while (count > 0) {
+                        end.clear();
+                        channel.read(end, MAGIC.length + (long) (count - 1) * ENTRY_SIZE);
+                        indexed = end.getLong(0);
+                        if (indexed <= size) {
+                            break;
+                        }
+                        count--;
+                        indexed = 0;
+                    }
+                    channel.truncate(MAGIC.length + (long) count * ENTRY_SIZE);
+                    channel.position(channel.size());
+                }
+                Writer writer = new Writer(channel, interval, indexed);
+                if (indexed < size) {
+                    try (FileChannel logChannel = FileChannel.open(log, StandardOpenOption.READ)) {
+                        SupportLogReader.scan(logChannel, indexed, size, writer::append);
+                    }
+                }
+                return writer;
+            } catch (IOException | RuntimeException x) {
+                channel.close();
+                throw x;
+            }
+        }
+
+        /**
+         * Adds a record which was appended to the log.
+         * @param start the offset of its first byte
+         * @param end the offset after its last byte
+         * @param millis its timestamp
+         */
+        void append(long start, long end, long millis) throws IOException {
+            if (segmentEnd == segmentStart) {
+                min = millis;
+                max = millis;
+            } else {
+                min = Math.min(min, millis);
+                max = Math.max(max, millis);
+            }
+            segmentEnd = end;
+            if (segmentEnd - segmentStart >= interval) {
+                writeEntry();
+            }
+        }
+
+        private void writeEntry() throws IOException {
+            entry.clear();
+            entry.putLong(segmentEnd).putLong(min).putLong(max).flip();
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+            segmentStart = segmentEnd;
+        }
+
+        /**
+         * Writes the entry for the last segment, even if it is short, and closes the sidecar file.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (segmentEnd > segmentStart) {
+                    writeEntry();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * A parsed {@link MessageFormat} pattern as used for parameterized log messages.
+ * Patterns consisting only of literal text and plain {@code {n}} placeholders are substituted directly,
+ * unless an argument is a {@link Number} or {@link Date}, which {@link MessageFormat} formats according to the locale.
+ * Anything else is formatted by a copy of a {@link MessageFormat} which is parsed once.
+ */
+final class MessageTemplate {
+
+    /**
+     * Number of message patterns cached, or 0 to disable caching.
+     */
+    static final int CACHE_SIZE = Integer.getInteger(SupportLogFormatter.class.getName() + ".MESSAGE_TEMPLATE_CACHE_SIZE", 1024);
+
+    private static final BoundedCache<MessageTemplate> cache = CACHE_SIZE > 0 ? new BoundedCache<>(CACHE_SIZE) : null;
+
+    /** {@link MessageFormat} rejects argument numbers from this on. */
+    private static final int MAX_ARGUMENT = 10000;
+
+    private final String pattern;
+    private final Locale locale;
+    /** For simple patterns, the literal text before each placeholder and after the last; otherwise null. */
+    @CheckForNull
+    private final String[] literals;
+    /** For simple patterns, the argument number of each placeholder. */
+    @CheckForNull
+    private final int[] arguments;
+    @CheckForNull
+    private volatile MessageFormat prototype;
+
+    private MessageTemplate(String pattern, Locale locale, String[] literals, int[] arguments) {
+        this.pattern = pattern;
+        this.locale = locale;
+        this.literals = literals;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Equivalent to {@link MessageFormat#format(String, Object...)}, using a cached template where possible.
+     * @throws IllegalArgumentException if the pattern is invalid or an argument does not suit its format
+     */
+    static String format(@NonNull String pattern, @NonNull Object[] parameters) {
+        return of(pattern).format(parameters);
+    }
+
+    static MessageTemplate of(String pattern) {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if (cache == null) {
+            return parse(pattern, locale);
+        }
+        MessageTemplate template = cache.get(pattern);
+        boolean hit = template != null && template.locale.equals(locale);
+        FormatterMetrics metrics = FormatterMetrics.current;
+        if (metrics != null) {
+            metrics.recordLookup(FormatterMetrics.Cache.MESSAGE_TEMPLATE, hit);
+        }
+        if (!hit) {
+            template = parse(pattern, locale);
+            cache.put(pattern, template);
+        }
+        return template;
+    }
+
+    /**
+     * Splits a pattern into literals and placeholders if it has no quotes and only placeholders of the form {@code {n}}.
+     */
+    static MessageTemplate parse(String pattern, Locale locale) {
+        if (pattern.indexOf('\'') != -1) {
+            return new MessageTemplate(pattern, locale, null, null);
+        }
+        int count = 0;
+        for (int i = pattern.indexOf('{'); i != -1; i = pattern.indexOf('{', i + 1)) {
+            count++;
+        }
+        String[] literals = new String[count + 1];
+        int[] arguments = new int[count];
+        int start = 0;
+        for (int n = 0; n < count; n++) {
+            int open = pattern.indexOf('{', start);
+            int close = open + 1;
+            int argument = 0;
+            while (close < pattern.length() && close - open <= 4 && pattern.charAt(close) >= '0' && pattern.charAt(close) <= '9') {
+                argument = argument * 10 + pattern.charAt(close) - '0';
+                close++;
+            }
+            if (close == open + 1 || close == pattern.length() || pattern.charAt(close) != '}' || argument >= MAX_ARGUMENT) {
+                // a format type, style, or something MessageFormat may reject
+                return new MessageTemplate(pattern, locale, null, null);
+            }
+            literals[n] = pattern.substring(start, open);
+            arguments[n] = argument;
+            start = close + 1;
+        }
+        literals[count] = pattern.substring(start);
+        return new MessageTemplate(pattern, locale, literals, arguments);
+    }
+
+    String format(Object[] parameters) {
+        String[] literals = this.literals;
+        int[] arguments = this.arguments;
+        if (literals == null || arguments == null || needsLocale(arguments, parameters)) {
+            return messageFormat().format(parameters);
+        }
+        StringBuilder sb = new StringBuilder(pattern.length() + 16 * arguments.length);
+        for (int n = 0; n < arguments.length; n++) {
+            sb.append(literals[n]);
+            int argument = arguments[n];
+            if (argument >= parameters.length) {
+                sb.append('{').append(argument).append('}');
+            } else {
+                Object parameter = parameters[argument];
+                String text = parameter == null ? null : parameter.toString();
+                sb.append(text == null ? "null" : text);
+            }
+        }
+        return sb.append(literals[arguments.length]).toString();
+    }
+
+    private static boolean needsLocale(int[] arguments, Object[] parameters) {
+        for (int argument : arguments) {
+            if (argument < parameters.length && (parameters[argument] instanceof Number || parameters[argument] instanceof Date)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a private copy of the parsed pattern, since {@link MessageFormat} is not thread safe
+     */
+    private MessageFormat messageFormat() {
+        MessageFormat prototype = this.prototype;
+        if (prototype == null) {
+            prototype = new MessageFormat(pattern, locale);
+            this.prototype = prototype;
+        }
+        return (MessageFormat) prototype.clone();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size buffer in direct memory holding the most recent text appended to it, as UTF-8.
+ * <p>
+ * The buffer is divided into blocks, and each entry lies entirely within one block, prefixed by a 16 byte header with
+ * its length and a stamp identifying its position. Writers reserve space by advancing {@link #head} with a CAS,
+ * moving on to the next block if the entry does not fit in the current one, and publish the stamp with release semantics
+ * once the entry is complete. When all blocks are used the oldest block is reused, so between
+ * {@code blockCount - 1} and {@code blockCount} blocks of text are retained.
+ * <p>
+ * While writing, a writer is registered in {@link #writers} for the part of the buffer it writes to,
+ * along with the block that part currently belongs to. Writers for a later round through the buffer only take over
+ * a part once all writers of the earlier round have left it; a writer which finds its part taken over,
+ * or still in use by a stalled writer of an earlier round, drops its entry rather than waiting.
+ * Readers copy one block at a time into a staging buffer, stopping at the first entry whose stamp does not match,
+ * and afterwards check that the part still belongs to that block, or else skip it.
+ * So neither writers nor readers ever wait for each other.
+ */
+final class OffHeapRingBuffer {
+
+    private static final int HEADER = 16;
+    private static final int PADDING = -1;
+    private static final VarHandle STAMP = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final String TRUNCATED = "[truncated]\n";
+
+    private final ByteBuffer data;
+    private final int capacity;
+    private final int blockSize;
+    private final int blockCount;
+    /** Logical position of the next entry; the physical index is this modulo {@link #capacity}. */
+    private final AtomicLong head = new AtomicLong();
+    /** For each part of the buffer, the logical block it belongs to, shifted by {@link #COUNT_BITS}, plus the number of writers in it. */
+    private final AtomicLongArray writers;
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Reused by {@link #writeTo} rather than allocated per call, since direct memory is only freed by garbage collection.
+     * Guarded by {@code this}.
+     */
+    private ByteBuffer staging;
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    /**
+     * @param capacity the size in bytes, which is rounded down to a multiple of {@code 16 * blockCount}
+     * @param blockCount the number of blocks, at least 2; the largest entry is {@code capacity / blockCount - 16} bytes
+     */
+    OffHeapRingBuffer(int capacity, int blockCount) {
+        if (blockCount < 2 || capacity / blockCount < 2 * HEADER) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + " or block count " + blockCount);
+        }
+        this.blockCount = blockCount;
+        blockSize = capacity / blockCount / HEADER * HEADER;
+        this.capacity = blockSize * blockCount;
+        data = ByteBuffer.allocateDirect(this.capacity);
+        writers = new AtomicLongArray(blockCount);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the size of the largest entry, in bytes; longer text is truncated
+     */
+    int maxEntryLength() {
+        return blockSize - HEADER;
+    }
+
+    /**
+     * @return the number of entries which were dropped because a writer stalled for a whole round through the buffer
+     */
+    long droppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Appends text, truncating it if it is longer than {@link #maxEntryLength()} once encoded.
+     */
+    void append(@NonNull CharSequence text) {
+        int length = Utf8Encoder.encodedLength(text);
+        if (length > maxEntryLength()) {
+            text = truncate(text, maxEntryLength());
+            length = Utf8Encoder.encodedLength(text);
+        }
+        long position = reserve(HEADER + align(length));
+        int part = enter(position);
+        if (part == -1) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            int index = (int) (position % capacity);
+            ByteBuffer target = data.duplicate();
+            target.limit(index + HEADER + length).position(index + HEADER);
+            Utf8Encoder.encode(text, target);
+            target.putInt(index + Long.BYTES, length);
+            STAMP.setRelease(data, index, position + 1);
+        } finally {
+            writers.decrementAndGet(part);
+        }
+    }
+
+    /**
+     * Registers a writer for the part of the buffer holding a position.
+     * @return the part, or -1 if it now belongs to a later block, or still has writers of an earlier block
+     */
+    private int enter(long position) {
+        long block = position / blockSize;
+        int part = (int) (block % blockCount);
+        while (true) {
+            long current = writers.get(part);
+            long owner = current >>> COUNT_BITS;
+            if (owner == block) {
+                if (writers.compareAndSet(part, current, current + 1)) {
+                    return part;
+                }
+            } else if (owner < block && (current & COUNT_MASK) == 0) {
+                if (writers.compareAndSet(part, current, block << COUNT_BITS | 1)) {
+                    return part;
+                }
+            } else {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Reserves space for an entry, padding the rest of the current block if the entry does not fit.
+     * @return the logical position of the entry
+     */
+    private long reserve(int size) {
+        while (true) {
+            long h = head.get();
+            long blockEnd = (h / blockSize + 1) * blockSize;
+            if (h + size <= blockEnd) {
+                if (head.compareAndSet(h, h + size)) {
+                    return h;
+                }
+            } else if (head.compareAndSet(h, blockEnd)) {
+                int part = enter(h);
+                if (part != -1) {
+                    int index = (int) (h % capacity);
+                    data.duplicate().putInt(index + Long.BYTES, PADDING);
+                    STAMP.setRelease(data, index, h + 1);
+                    writers.decrementAndGet(part);
+                }
+            }
+        }
+    }
+
+    private static int align(int length) {
+        return (length + HEADER - 1) & -HEADER;
+    }
+
+    /**
+     * Shortens text to fit in a number of bytes, marking it as truncated.
+     */
+    static CharSequence truncate(CharSequence text, int maxLength) {
+        int budget = maxLength - TRUNCATED.length();
+        int bytes = 0;
+        int end = 0;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            int charBytes;
+            int chars = 1;
+            if (c < 0x80) {
+                charBytes = 1;
+            } else if (c < 0x800) {
+                charBytes = 2;
+            } else if (Character.isHighSurrogate(c) && end + 1 < text.length() && Character.isLowSurrogate(text.charAt(end + 1))) {
+                charBytes = 4;
+                chars = 2;
+            } else if (Character.isSurrogate(c)) {
+                charBytes = 1; // encoded as '?'
+            } else {
+                charBytes = 3;
+            }
+            if (bytes + charBytes > budget) {
+                break;
+            }
+            bytes += charBytes;
+            end += chars;
+        }
+        return new StringBuilder(end + TRUNCATED.length()).append(text, 0, end).append(TRUNCATED);
+    }
+
+    /**
+     * Writes the retained text, oldest first, without copying more than one block at a time.
+     * Entries still being appended are left out. Concurrent calls wait for each other, but not for {@link #append}.
+     * @param out where to write
+     * @return the number of bytes written
+     * @throws IOException if writing fails
+     */
+    synchronized long writeTo(@NonNull WritableByteChannel out) throws IOException {
+        long h = head.get();
+        if (h == 0) {
+            return 0;
+        }
+        ByteBuffer source = data.duplicate();
+        if (staging == null) {
+            staging = ByteBuffer.allocateDirect(blockSize);
+        }
+        ByteBuffer staging = this.staging;
+        long written = 0;
+        for (long block = Math.max(0, h / blockSize - blockCount + 1); block <= (h - 1) / blockSize; block++) {
+            staging.clear();
+            long p = block * blockSize;
+            long end = Math.min(h, p + blockSize);
+            while (p < end) {
+                int index = (int) (p % capacity);
+                if ((long) STAMP.getAcquire(data, index) != p + 1) {
+                    break;
+                }
+                source.clear();
+                int length = source.getInt(index + Long.BYTES);
+                if (length == PADDING || length < 0 || length > staging.remaining()) {
+                    break;
+                }
+                source.limit(index + HEADER + length).position(index + HEADER);
+                staging.put(source);
+                p += HEADER + align(length);
+            }
+            // like StampedLock.validate: the copy above must not be reordered after the check below
+            VarHandle.acquireFence();
+            if (writers.get((int) (block % blockCount)) >>> COUNT_BITS != block) {
+                // taken over by a later block while copying
+                continue;
+            }
+            staging.flip();
+            while (staging.hasRemaining()) {
+                written += out.write(staging);
+            }
+        }
+        return written;
+    }
+}
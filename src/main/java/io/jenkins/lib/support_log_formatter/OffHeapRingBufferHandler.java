@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} which keeps the most recent output of its formatter in a fixed amount of direct memory,
+ * for inclusion in support bundles without holding on to lots of {@link String}s in the old generation.
+ * <p>
+ * Records are stored as UTF-8 exactly as {@link SupportLogFormatter} would write them.
+ * Publishing never blocks: concurrent callers reserve space with a CAS, and the oldest part of the buffer is overwritten when it is full.
+ * The retained output can be written out at any time with {@link #writeTo(OutputStream)} or {@link #writeTo(Path)},
+ * which copy it a block at a time rather than all at once; concurrent calls to these wait for each other.
+ * A record longer than a block ({@code capacity / blockCount} bytes) is truncated.
+ */
+public class OffHeapRingBufferHandler extends Handler {
+
+    static final int DEFAULT_BLOCK_COUNT = 16;
+
+    private final OffHeapRingBuffer buffer;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity the size of the buffer in bytes
+     */
+    public OffHeapRingBufferHandler(int capacity) {
+        this(capacity, DEFAULT_BLOCK_COUNT);
+    }
+
+    /**
+     * @param capacity the size of the buffer in bytes
+     * @param blockCount the number of blocks the buffer is divided into, which is also the granularity at which old output is discarded
+     */
+    @SuppressWarnings("this-escape")
+    public OffHeapRingBufferHandler(int capacity, int blockCount) {
+        buffer = new OffHeapRingBuffer(capacity, blockCount);
+        setFormatter(new SupportLogFormatter());
+    }
+
+    /**
+     * @return the actual size of the buffer in bytes
+     */
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return the number of records which were lost because a publishing thread stalled
+     *     for as long as it took other threads to fill the whole buffer
+     */
+    public long getDroppedCount() {
+        return buffer.droppedCount();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        Formatter formatter = getFormatter();
+        if (!(formatter instanceof SupportLogFormatter)) {
+            String text;
+            try {
+                text = formatter.format(record);
+            } catch (RuntimeException x) {
+                reportError(null, x, ErrorManager.FORMAT_FAILURE);
+                return;
+            }
+            append(text);
+            return;
+        }
+        // the buffer is per thread, and taken out of the pool while in use, so concurrent and nested calls each get their own
+        StringBuilder text = SupportLogFormatter.acquireBuffer();
+        try {
+            try {
+                ((SupportLogFormatter) formatter).formatTo(record, text);
+            } catch (RuntimeException x) {
+                reportError(null, x, ErrorManager.FORMAT_FAILURE);
+                return;
+            }
+            append(text);
+        } finally {
+            SupportLogFormatter.releaseBuffer(text);
+        }
+    }
+
+    private void append(CharSequence text) {
+        try {
+            buffer.append(text);
+        } catch (RuntimeException x) {
+            reportError(null, x, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Writes the retained output, oldest first. Records being published concurrently may be left out.
+     * @param out where to write; not closed
+     * @return the number of bytes written
+     * @throws IOException if writing fails
+     */
+    public long writeTo(@NonNull OutputStream out) throws IOException {
+        return buffer.writeTo(Channels.newChannel(out));
+    }
+
+    /**
+     * Writes the retained output to a file, replacing its contents.
+     * @param file where to write
+     * @return the number of bytes written
+     * @throws IOException if writing fails
+     */
+    public long writeTo(@NonNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return buffer.writeTo(channel);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // nothing is buffered
+    }
+
+    /**
+     * Stops accepting records. The retained output can still be written out.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
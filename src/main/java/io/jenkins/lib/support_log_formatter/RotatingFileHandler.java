@@ -0,0 +1,338 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.ErrorManager;
+import java.util.logging.LogRecord;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link FileChannelHandler} which rolls the log file over by size and/or time, and compresses the closed segments in the background.
+ * <p>
+ * A segment is closed at a record boundary, before the first record which would take it over the size limit
+ * or which was logged in a later time interval. Intervals are aligned to the epoch, so that hourly segments start on the hour in UTC.
+ * A closed segment of {@code file} is renamed to {@code file.yyyyMMdd'T'HHmmss.SSS'Z'}, after the time of its first record in UTC,
+ * so archives sort by name in chronological order and the one covering a given time is the last one starting before it.
+ * <p>
+ * Archives are then compressed to {@code file.yyyyMMdd'T'HHmmss.SSS'Z'.gz} on a single daemon thread of minimal priority,
+ * shared by all handlers so that compression of several logs does not compete for I/O.
+ * Logging threads never wait for compression. Segments left uncompressed by an earlier process are compressed on startup.
+ * If a segment cannot be closed, records keep going to the current file, and the next attempt waits until the file
+ * has grown by another size limit or the next time interval has begun.
+ * Optionally only a number of the most recent archives are kept.
+ */
+public class RotatingFileHandler extends FileChannelHandler {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss.SSS'Z'").withZone(ZoneOffset.UTC);
+    private static final String GZ = ".gz";
+    private static final String TMP = ".tmp";
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    /** Compresses archives one at a time, in the order they were closed; the thread goes away when idle. */
+    private static final ThreadPoolExecutor compressor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "RotatingFileHandler compressor");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    static {
+        compressor.allowCoreThreadTimeOut(true);
+    }
+
+    private final long intervalMillis;
+    private final int maxArchives;
+    private final boolean compress;
+    private final Pattern archivePattern;
+    /** Matches files left behind by a compression which was interrupted by the process exiting. */
+    private final Pattern tmpPattern;
+    /** Time of the first record in the current segment. */
+    private long segmentStart;
+    /** Time of the record being published. */
+    private long recordMillis;
+    /** Time before which rolling over by time is not attempted again after a failure. */
+    private long retryMillis = UNKNOWN;
+    /** Compression and cleanup tasks which may not be finished yet. */
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    /**
+     * Creates a handler which rolls over by size and/or time, compresses archives, and keeps all of them.
+     * @param file the log file
+     * @param limit the size in bytes at which to roll over, or 0 for no limit
+     * @param interval the length of the time interval covered by each segment, or null to only roll over by size
+     * @throws IOException if the file cannot be opened
+     */
+    public RotatingFileHandler(@NonNull Path file, long limit, @CheckForNull Duration interval) throws IOException {
+        this(file, limit, interval, 0, true);
+    }
+
+    /**
+     * @param file the log file
+     * @param limit the size in bytes at which to roll over, or 0 for no limit
+     * @param interval the length of the time interval covered by each segment, or null to only roll over by size
+     * @param maxArchives the number of closed segments to keep, or 0 to keep all of them
+     * @param compress whether to compress closed segments
+     * @throws IOException if the file cannot be opened
+     */
+    @SuppressWarnings("this-escape")
+    public RotatingFileHandler(@NonNull Path file, long limit, @CheckForNull Duration interval, int maxArchives, boolean compress) throws IOException {
+        super(file, limit, 1, false);
+        if (interval != null && (interval.isNegative() || interval.isZero()) || maxArchives < 0) {
+            throw new IllegalArgumentException("Invalid interval " + interval + " or number of archives " + maxArchives);
+        }
+        this.intervalMillis = interval == null ? 0 : interval.toMillis();
+        this.maxArchives = maxArchives;
+        this.compress = compress;
+        archivePattern = Pattern.compile(Pattern.quote(file.getFileName().toString()) + "\\.(\\d{8}T\\d{6}\\.\\d{3}Z)(\\.gz)?");
+        tmpPattern = Pattern.compile(Pattern.quote(file.getFileName().toString()) + "\\.\\d{8}T\\d{6}\\.\\d{3}Z\\.gz\\.tmp");
+        segmentStart = Files.size(file) > 0 ? firstRecordMillis(file) : UNKNOWN;
+        schedule(null);
+    }
+
+    /**
+     * @return the closed segments, oldest first, whether compressed yet or not
+     * @throws IOException if the directory cannot be listed
+     */
+    @NonNull
+    public List<Path> getArchives() throws IOException {
+        Path file = getFile();
+        Path dir = file.toAbsolutePath().getParent();
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, file.getFileName() + ".*")) {
+            for (Path p : stream) {
+                if (archivePattern.matcher(p.getFileName().toString()).matches()) {
+                    archives.add(p);
+                }
+            }
+        }
+        Collections.sort(archives);
+        return archives;
+    }
+
+    /**
+     * Deletes partially compressed archives left behind by an earlier process, whose originals are still in place.
+     */
+    private void deleteStaleTemporaryFiles() throws IOException {
+        Path file = getFile();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.toAbsolutePath().getParent(), file.getFileName() + ".*" + GZ + TMP)) {
+            for (Path p : stream) {
+                if (tmpPattern.matcher(p.getFileName().toString()).matches()) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for compression and removal of old archives scheduled so far.
+     * @return whether that finished in time
+     */
+    public boolean awaitCompression(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        List<Future<?>> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(pending);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Future<?> task : tasks) {
+            try {
+                task.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException x) {
+                // already reported
+            } catch (TimeoutException x) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            // must not move the time window
+            return;
+        }
+        recordMillis = record.getMillis();
+        if (segmentStart == UNKNOWN) {
+            segmentStart = recordMillis;
+        }
+        super.publish(record);
+    }
+
+    @Override
+    protected boolean isRotationDue(long size, int length) {
+        if (super.isRotationDue(size, length)) {
+            return true;
+        }
+        return intervalMillis > 0 && recordMillis >= Math.max(intervalEnd(segmentStart), retryMillis);
+    }
+
+    /**
+     * Also puts off rolling over by time until the interval after that of the current record.
+     */
+    @Override
+    protected void rotationFailed(long size) {
+        super.rotationFailed(size);
+        if (intervalMillis > 0) {
+            retryMillis = intervalEnd(recordMillis);
+        }
+    }
+
+    /**
+     * @return the end of the time interval containing the given time
+     */
+    private long intervalEnd(long millis) {
+        return Math.floorDiv(millis, intervalMillis) * intervalMillis + intervalMillis;
+    }
+
+    /**
+     * Renames the segment after the time of its first record, and schedules its compression.
+     * Its {@link LogIndex#sidecar}, if any, is kept with it until it is compressed.
+     */
+    @Override
+    protected void archive(@NonNull Path file) throws IOException {
+        Path archive = null;
+        // only segments started within the same millisecond can clash, in which case the later ones are named as if a little later
+        for (long start = segmentStart; archive == null; start++) {
+            Path candidate = archivePath(file, start);
+            if (!Files.exists(candidate) && !Files.exists(gz(candidate))) {
+                archive = candidate;
+            }
+        }
+        Files.move(file, archive);
+        if (Files.exists(LogIndex.sidecar(file))) {
+            Files.move(LogIndex.sidecar(file), LogIndex.sidecar(archive), StandardCopyOption.REPLACE_EXISTING);
+        }
+        segmentStart = recordMillis;
+        schedule(archive);
+    }
+
+    /**
+     * @return the name of a closed segment of the log file starting at the given time, before compression
+     */
+    static Path archivePath(@NonNull Path file, long millis) {
+        return file.resolveSibling(file.getFileName() + "." + TIMESTAMP.format(Instant.ofEpochMilli(millis)));
+    }
+
+    private static Path gz(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + GZ);
+    }
+
+    /**
+     * Compresses the given archive, if any, and any left over from before, then removes old archives.
+     */
+    private synchronized void schedule(@CheckForNull Path archive) {
+        if (!compress && maxArchives == 0) {
+            return;
+        }
+        pending.removeIf(Future::isDone);
+        pending.add(compressor.submit(() -> {
+            try {
+                if (compress) {
+                    if (archive != null) {
+                        compress(archive);
+                    } else {
+                        // on startup; later tasks run on the same thread, so no compression is in progress
+                        deleteStaleTemporaryFiles();
+                    }
+                    for (Path p : getArchives()) {
+                        if (!p.getFileName().toString().endsWith(GZ)) {
+                            compress(p);
+                        }
+                    }
+                }
+                if (maxArchives > 0) {
+                    List<Path> archives = getArchives();
+                    for (Path p : archives.subList(0, Math.max(archives.size() - maxArchives, 0))) {
+                        Files.deleteIfExists(p);
+                        Files.deleteIfExists(LogIndex.sidecar(p));
+                    }
+                }
+            } catch (IOException | RuntimeException x) {
+                reportError("Failed to compress or remove archives of " + getFile(), x, ErrorManager.GENERIC_FAILURE);
+            }
+        }));
+    }
+
+    /**
+     * Writes the compressed archive under a temporary name, so that an interrupted attempt leaves the original in place,
+     * and removes the original along with its index, which does not apply to the compressed file.
+     */
+    private static void compress(Path archive) throws IOException {
+        if (!Files.exists(archive)) {
+            return;
+        }
+        Path tmp = archive.resolveSibling(archive.getFileName() + GZ + TMP);
+        try (InputStream in = Files.newInputStream(archive); OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            in.transferTo(out);
+        } catch (IOException x) {
+            Files.deleteIfExists(tmp);
+            throw x;
+        }
+        Files.move(tmp, gz(archive), StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(archive);
+        Files.deleteIfExists(LogIndex.sidecar(archive));
+    }
+
+    /**
+     * @return the time of the first record in an existing file, or failing that when the file was created
+     */
+    private static long firstRecordMillis(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line != null && SupportLogReader.isRecordStart(line, 0)) {
+                return SupportLogReader.parse(line).millis();
+            }
+        } catch (IOException | RuntimeException x) {
+            // not a log written by SupportLogFormatter, or not valid UTF-8
+        }
+        return Files.readAttributes(file, BasicFileAttributes.class).creationTime().toMillis();
+    }
+}
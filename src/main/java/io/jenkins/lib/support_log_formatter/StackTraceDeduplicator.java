@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Recognizes stack traces which have recently been rendered in full, so that repeats can be abbreviated to a single line.
+ * Throwable chains are identified by a 64-bit fingerprint of the type, the message with any digits ignored, and the frames
+ * of every throwable in the chain, which is much cheaper to compute than rendering the trace.
+ * Fingerprints are kept in a fixed-size lock-free table, where a new fingerprint evicts whichever one shared its slot.
+ */
+final class StackTraceDeduplicator {
+
+    /** Bounds the work spent on pathological chains, including cyclic ones. */
+    private static final int MAX_THROWABLES = 64;
+
+    private static final class Entry {
+        final long fingerprint;
+        final long windowStart;
+        final String description;
+        final AtomicLong count = new AtomicLong(1);
+        /** Repeats already included in a summary. */
+        final AtomicLong summarized = new AtomicLong();
+        /** The throwable last recorded and its outcome, so that formatting the same record again, e.g. for another handler, gives the same result. */
+        volatile Last last;
+
+        Entry(long fingerprint, long windowStart, String description, Last last) {
+            this.fingerprint = fingerprint;
+            this.windowStart = windowStart;
+            this.description = description;
+            this.last = last;
+        }
+
+        @CheckForNull
+        Occurrence again(Throwable t) {
+            Last last = this.last;
+            return last != null && last.thrown.get() == t ? last.occurrence : null;
+        }
+    }
+
+    private record Last(WeakReference<Throwable> thrown, Occurrence occurrence) {
+        Last(Throwable thrown, Occurrence occurrence) {
+            this(new WeakReference<>(thrown), occurrence);
+        }
+    }
+
+    /**
+     * The outcome of {@link #record}.
+     * @param fingerprint the fingerprint of the throwable chain
+     * @param count the number of occurrences in the current window, 1 if the trace must be rendered in full
+     * @param windowStart when the current window started, i.e. when the trace was last rendered in full
+     * @param previousRepeats for a full rendering, the number of abbreviated repeats in the window that just ended
+     */
+    record Occurrence(long fingerprint, long count, long windowStart, long previousRepeats) {
+        boolean isFirst() {
+            return count == 1;
+        }
+    }
+
+    private final long windowMillis;
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    /** When {@link #appendSummary} was last called. */
+    private volatile long lastSummary = Long.MIN_VALUE;
+
+    /**
+     * @param windowMillis for how long after a full rendering repeats are abbreviated
+     * @param size the number of distinct fingerprints to remember, rounded up to a power of two
+     */
+    StackTraceDeduplicator(long windowMillis, int size) {
+        if (windowMillis <= 0 || size <= 0 || size > 1 << 20) {
+            throw new IllegalArgumentException("Invalid window " + windowMillis + " or size " + size);
+        }
+        this.windowMillis = windowMillis;
+        int capacity = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        table = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Records an occurrence of a throwable.
+     * Recording the throwable last recorded with the same fingerprint again does not count as a repeat but has the same outcome,
+     * so a record formatted once per handler is rendered the same way each time.
+     * @param t the throwable
+     * @param millis when it was logged
+     * @return whether to render it in full or abbreviate it
+     */
+    @NonNull
+    Occurrence record(@NonNull Throwable t, long millis) {
+        long fingerprint = fingerprint(t);
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            Entry e = table.get(slot);
+            if (e != null && e.fingerprint == fingerprint) {
+                Occurrence again = e.again(t);
+                if (again != null) {
+                    return again;
+                }
+                if (Math.abs(millis - e.windowStart) < windowMillis) {
+                    Occurrence occurrence = new Occurrence(fingerprint, e.count.incrementAndGet(), e.windowStart, 0);
+                    e.last = new Last(t, occurrence);
+                    return occurrence;
+                }
+            }
+            long previousRepeats = e != null && e.fingerprint == fingerprint ? e.count.get() - 1 : 0;
+            Occurrence occurrence = new Occurrence(fingerprint, 1, millis, previousRepeats);
+            if (table.compareAndSet(slot, e, new Entry(fingerprint, millis, describe(t), new Last(t, occurrence)))) {
+                return occurrence;
+            }
+        }
+    }
+
+    /**
+     * Appends a line for each trace which has been abbreviated since the previous summary, in a window which has not ended yet,
+     * with the number of repeats since then.
+     * @param now the current time
+     */
+    void appendSummary(@NonNull StringBuilder sb, long now) {
+        long since = lastSummary;
+        lastSummary = now;
+        for (int i = 0; i < table.length(); i++) {
+            Entry e = table.get(i);
+            if (e == null || Math.abs(now - e.windowStart) >= windowMillis) {
+                continue;
+            }
+            long total = e.count.get() - 1;
+            long repeats = total - e.summarized.getAndSet(total);
+            if (repeats > 0) {
+                sb.append("[stack trace ").append(id(e.fingerprint)).append("] repeated ").append(repeats).append(" times since ");
+                TimestampRenderer.append(sb, Math.max(e.windowStart, since));
+                sb.append(": ").append(e.description).append(SupportLogFormatter.LINE_SEPARATOR);
+            }
+        }
+    }
+
+    static String id(long fingerprint) {
+        String hex = Long.toHexString(fingerprint);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+
+    private static String describe(Throwable t) {
+        return SupportLogFormatter.transformMessage(t.toString(), "");
+    }
+
+    /**
+     * Computes a fingerprint of a throwable chain, including causes and suppressed throwables.
+     */
+    static long fingerprint(@NonNull Throwable t) {
+        long[] state = {0x9E3779B97F4A7C15L, MAX_THROWABLES};
+        fingerprint(t, state);
+        return mix(state[0]);
+    }
+
+    private static void fingerprint(Throwable t, long[] state) {
+        if (state[1]-- <= 0) {
+            return;
+        }
+        long h = state[0];
+        h = combine(h, t.getClass().getName().hashCode());
+        h = combine(h, messageShape(t.getMessage()));
+        for (StackTraceElement frame : t.getStackTrace()) {
+            h = combine(h, frame.getClassName().hashCode());
+            h = combine(h, frame.getMethodName().hashCode());
+            h = combine(h, frame.getLineNumber());
+        }
+        Throwable cause = t.getCause();
+        h = combine(h, cause == null ? 0 : 1);
+        state[0] = h;
+        if (cause != null) {
+            fingerprint(cause, state);
+        }
+        Throwable[] suppressed = t.getSuppressed();
+        state[0] = combine(state[0], suppressed.length);
+        for (Throwable s : suppressed) {
+            fingerprint(s, state);
+        }
+    }
+
+    /**
+     * Hashes a message ignoring digits, so that messages differing only in numbers such as ids, ports or durations match.
+     */
+    private static int messageShape(String message) {
+        if (message == null) {
+            return 0;
+        }
+        int h = 1;
+        boolean inNumber = false;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inNumber) {
+                    h = 31 * h + '#';
+                    inNumber = true;
+                }
+            } else {
+                h = 31 * h + c;
+                inNumber = false;
+            }
+        }
+        return h;
+    }
+
+    private static long combine(long h, long value) {
+        return (h ^ value) * 0x100000001B3L + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -24,17 +24,21 @@
 
 package io.jenkins.lib.support_log_formatter;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings; // Acceptable because RetentionPolicy.CLASS
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Date;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
 import java.util.Set;
-import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
@@ -45,16 +49,9 @@ import java.util.logging.LogRecord;
  */
 public class SupportLogFormatter extends Formatter {
 
-    private final static ThreadLocal<SimpleDateFormat> threadLocalDateFormat = ThreadLocal.withInitial(() -> {
-        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSSZ");
-        f.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return f;
-    });
-
     protected String formatTime(LogRecord record) {
-        return threadLocalDateFormat.get().format(new Date(record.getMillis()));
+        return TimestampRenderer.format(record.getMillis());
     }
-    private static final char[] CRLF = new char[] { '\r', '\n' };
 
     /**
      * Transforms a log message string for use on the CLI.
@@ -63,154 +60,658 @@ public class SupportLogFormatter extends Formatter {
      * @return the transformed log message string
      */
     static String transformMessage(@NonNull String message, @NonNull String indent) {
-        if (DO_NOT_FORMAT_FOR_CLI) {
+        if (DO_NOT_FORMAT_FOR_CLI || (message.indexOf('\n') == -1 && message.indexOf('\r') == -1)) {
+            // the overwhelmingly common case of a single-line message needs no copy at all
             return message;
         }
-        StringBuilder sb = new StringBuilder();
-        final char[] chars = message.toCharArray();
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
+        StringBuilder sb = new StringBuilder(message.length() + 16);
+        transformMessage(sb, message, indent);
+        return sb.toString();
+    }
+
+    /**
+     * Like {@link #transformMessage(String, String)} but appends the result to an existing buffer.
+     * Line breaks are located with {@link String#indexOf(int, int)} and the text between them is copied in bulk.
+     * @param sb the buffer to append to
+     * @param message the original log message
+     * @param indent how far to indent subsequent lines
+     */
+    static void transformMessage(@NonNull StringBuilder sb, @NonNull String message, @NonNull String indent) {
+        try {
+            transformMessage((Appendable) sb, message, indent);
+        } catch (IOException x) {
+            throw new AssertionError(x); // StringBuilder does not throw
+        }
+    }
 
-            if (i < chars.length - 1 && Arrays.equals(CRLF, 0, 2, chars, i, i + 2)) {
+    /**
+     * Like {@link #transformMessage(String, String)} but appends the result to an arbitrary destination.
+     * @param sb where to append to
+     * @param message the original log message
+     * @param indent how far to indent subsequent lines
+     * @throws IOException if appending fails
+     */
+    static void transformMessage(@NonNull Appendable sb, @NonNull String message, @NonNull String indent) throws IOException {
+        if (DO_NOT_FORMAT_FOR_CLI) {
+            sb.append(message);
+            return;
+        }
+        final int length = message.length();
+        int lf = message.indexOf('\n');
+        int cr = message.indexOf('\r');
+        int start = 0;
+        while (lf != -1 || cr != -1) {
+            int i = cr == -1 || (lf != -1 && lf < cr) ? lf : cr;
+            sb.append(message, start, i);
+            if (i == cr && lf == i + 1) {
                 // explicit line break indicator unless trailing newline
-                if (i < chars.length - CRLF.length) {
+                if (i < length - 2) {
                     sb.append(LINE_SEPARATOR).append(indent).append("[CRLF]").append(NEWLINE_INDICATOR);
                 } else {
                     sb.append(LINE_SEPARATOR);
                 }
-                i += 1;
-                continue;
-            }
-            if (c == '\n' || c == '\r') {
+                start = i + 2;
+            } else {
                 // explicit line break indicator unless trailing newline
                 // TODO Should we even consider \r to be a line break on its own?
-                if (i < chars.length - 1) {
-                    sb.append(LINE_SEPARATOR).append(indent).append(c == '\n' ? "[LF]" : "[CR]").append(NEWLINE_INDICATOR);
+                if (i < length - 1) {
+                    sb.append(LINE_SEPARATOR).append(indent).append(i == lf ? "[LF]" : "[CR]").append(NEWLINE_INDICATOR);
                 } else {
-                    sb.append(c);
+                    sb.append(message.charAt(i));
                 }
-                continue;
+                start = i + 1;
+            }
+            if (lf != -1 && lf < start) {
+                lf = message.indexOf('\n', start);
+            }
+            if (cr != -1 && cr < start) {
+                cr = message.indexOf('\r', start);
             }
-            sb.append(c);
         }
-        return sb.toString();
+        sb.append(message, start, length);
     }
 
     static /* quasi-final */ boolean DO_NOT_FORMAT_FOR_CLI = Boolean.getBoolean(SupportLogFormatter.class.getName() + ".DO_NOT_FORMAT_FOR_CLI");
     static /* quasi-final */ String NEWLINE_INDICATOR = System.getProperty(SupportLogFormatter.class.getName() + ".NEWLINE_INDICATOR", "> ");
 
-    private static final String LINE_SEPARATOR = System.lineSeparator();
+    static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * Buffers are only returned to the pool if they have not grown beyond this size,
+     * so that one huge stack trace does not pin memory for the lifetime of the thread.
+     * Jenkins has many long-lived threads which log, so this is kept small;
+     * larger records get a buffer of their own which is simply discarded afterwards.
+     */
+    private static final int MAX_POOLED_BUFFER_CAPACITY = 8 * 1024;
+
+    /**
+     * Per-thread buffer used by {@link #format(LogRecord)} and {@link #formatTo(LogRecord, Appendable)}.
+     * The buffer is removed while in use so that reentrant logging (e.g. from a parameter's {@code toString})
+     * gets a fresh one rather than corrupting the outer record.
+     * Virtual threads are cheap and numerous, so they never keep a buffer.
+     */
+    private static final ThreadLocal<StringBuilder> pooledBuffer = new ThreadLocal<>();
+
+    /** {@code Thread.isVirtual}, which only exists as of Java 21, or null. */
+    @CheckForNull
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+    @CheckForNull
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException x) {
+            return null;
+        }
+    }
+
+    static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable x) {
+            return false;
+        }
+    }
+
+    /**
+     * @return an empty buffer, which should be passed to {@link #releaseBuffer} when no longer used
+     */
+    static StringBuilder acquireBuffer() {
+        StringBuilder buffer = pooledBuffer.get();
+        if (buffer == null) {
+            return new StringBuilder(256);
+        }
+        pooledBuffer.set(null);
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    static void releaseBuffer(StringBuilder buffer) {
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_CAPACITY && !isVirtualThread()) {
+            pooledBuffer.set(buffer);
+        }
+    }
+
+    private final boolean customFormat = isOverridden("format", LogRecord.class);
+    private final boolean customFormatTime = isOverridden("formatTime", LogRecord.class);
+    private final boolean customAbbreviateClassName = isOverridden("abbreviateClassName", String.class, int.class);
+
+    /**
+     * Checks whether a subclass overrides one of the methods used by {@link #formatTo(LogRecord, StringBuilder)},
+     * in which case the override must be called rather than the allocation-free implementation.
+     */
+    private boolean isOverridden(String name, Class<?>... parameterTypes) {
+        for (Class<?> c = getClass(); c != SupportLogFormatter.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException x) {
+                // keep looking
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether to reuse the output for a record, or the rendering of a throwable, which was just produced on the same thread.
+     * This avoids formatting a record repeatedly when it is published to several handlers, at the cost of keeping a copy
+     * of each result as a {@link String}, even from {@link #formatTo(LogRecord, StringBuilder)}. So it is off by default.
+     */
+    static /* quasi-final */ boolean MEMOIZE = Boolean.getBoolean(SupportLogFormatter.class.getName() + ".MEMOIZE");
+
+    /** Identifies all formatters which produce the same output for a record. */
+    private static final Object DEFAULT_OUTPUT = new Object();
+
+    /**
+     * @return what to remember output of this formatter under
+     */
+    private Object memoOwner() {
+        return getClass() == SupportLogFormatter.class && deduplicator == null ? DEFAULT_OUTPUT : this;
+    }
 
     @Override
-    @SuppressFBWarnings(
-            value = {"DE_MIGHT_IGNORE"},
-            justification = "The exception wasn't thrown on our stack frame"
-    )
     public String format(LogRecord record) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(formatTime(record));
-        builder.append(" [id=").append(record.getLongThreadID()).append("]");
+        FormatterMetrics metrics = FormatterMetrics.current;
+        FormattingMemo memo = MEMOIZE ? FormattingMemo.get() : null;
+        Object owner = memoOwner();
+        if (memo != null) {
+            String text = lookUp(memo, owner, record, metrics);
+            if (text != null) {
+                return text;
+            }
+        }
+        StringBuilder builder = acquireBuffer();
+        try {
+            long start = metrics != null ? System.nanoTime() : 0;
+            doFormat(record, builder);
+            String text = builder.toString();
+            if (metrics != null) {
+                metrics.recordFormatted(record.getLevel(), text.length(), System.nanoTime() - start);
+            }
+            if (memo != null) {
+                memo.put(owner, record, text);
+            }
+            return text;
+        } finally {
+            releaseBuffer(builder);
+        }
+    }
 
-        builder.append("\t").append(record.getLevel().getName()).append("\t");
+    /**
+     * Formats a record directly into the given destination, avoiding the intermediate {@link String} of {@link #format(LogRecord)}.
+     * @param record the log record to format
+     * @param out where to append the formatted record
+     * @throws IOException if appending to {@code out} fails
+     */
+    public void formatTo(LogRecord record, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            formatTo(record, (StringBuilder) out);
+            return;
+        }
+        StringBuilder builder = acquireBuffer();
+        try {
+            formatTo(record, builder);
+            out.append(builder);
+        } finally {
+            releaseBuffer(builder);
+        }
+    }
 
-        if (record.getSourceMethodName() != null) {
-            String sourceClass;
-            if (record.getSourceClassName() == null) {
-                sourceClass = record.getLoggerName();
-            } else {
-                sourceClass = record.getSourceClassName();
+    /**
+     * Formats a record directly into the given buffer, producing the same text as {@link #format(LogRecord)}.
+     * @param record the log record to format
+     * @param builder where to append the formatted record
+     */
+    public void formatTo(LogRecord record, StringBuilder builder) {
+        if (customFormat) {
+            builder.append(format(record));
+            return;
+        }
+        FormatterMetrics metrics = FormatterMetrics.current;
+        FormattingMemo memo = MEMOIZE ? FormattingMemo.get() : null;
+        Object owner = memoOwner();
+        if (memo != null) {
+            String text = lookUp(memo, owner, record, metrics);
+            if (text != null) {
+                builder.append(text);
+                return;
             }
+        }
+        int length = builder.length();
+        long start = metrics != null ? System.nanoTime() : 0;
+        doFormat(record, builder);
+        if (metrics != null) {
+            metrics.recordFormatted(record.getLevel(), builder.length() - length, System.nanoTime() - start);
+        }
+        if (memo != null) {
+            memo.put(owner, record, builder.substring(length));
+        }
+    }
 
-            builder.append(abbreviateClassName(sourceClass, 32)).append("#").append(record.getSourceMethodName());
+    /**
+     * @return the output remembered for a record, which is counted as reused rather than formatted
+     */
+    @CheckForNull
+    private static String lookUp(FormattingMemo memo, Object owner, LogRecord record, @CheckForNull FormatterMetrics metrics) {
+        String text = memo.get(owner, record);
+        if (metrics != null) {
+            metrics.recordLookup(FormatterMetrics.Cache.RECORD_MEMO, text != null);
+        }
+        return text;
+    }
+
+    private void doFormat(LogRecord record, StringBuilder builder) {
+        if (customFormatTime) {
+            builder.append(formatTime(record));
         } else {
-            String sourceClass;
-            if (record.getSourceClassName() == null) {
-                sourceClass = record.getLoggerName();
-            } else {
-                sourceClass = record.getSourceClassName();
-            }
-            builder.append(abbreviateClassName(sourceClass, 40));
+            TimestampRenderer.append(builder, record.getMillis());
+        }
+        builder.append(" [id=").append(record.getLongThreadID()).append("]");
+
+        builder.append("\t").append(record.getLevel().getName()).append("\t");
+
+        appendSourceClass(record, builder);
+        String sourceMethod = record.getSourceMethodName();
+        if (sourceMethod != null) {
+            builder.append("#").append(sourceMethod);
         }
 
         String message = formatMessage(record);
         if (message != null) {
-            builder.append(": ").append(transformMessage(message, ""));
+            builder.append(": ");
+            transformMessage(builder, message, "");
         }
 
         builder.append("\n");
 
-        if (record.getThrown() != null) {
+        appendThrown(record, builder);
+    }
+
+    /**
+     * Localizes and formats the message like {@link Formatter#formatMessage}, including returning the pattern unchanged
+     * if formatting fails, but reuses parsed patterns and substitutes plain {@code {n}} placeholders without {@link java.text.MessageFormat}.
+     */
+    @Override
+    @SuppressFBWarnings(value = "REC_CATCH_EXCEPTION", justification = "Same as Formatter.formatMessage")
+    public String formatMessage(LogRecord record) {
+        String format = record.getMessage();
+        ResourceBundle catalog = record.getResourceBundle();
+        if (catalog != null) {
             try {
-                builder.append(printThrowable(record.getThrown()));
+                format = catalog.getString(format);
+            } catch (MissingResourceException x) {
+                // use the message as the pattern
+            }
+        }
+        try {
+            Object[] parameters = record.getParameters();
+            if (parameters == null || parameters.length == 0) {
+                return format;
+            }
+            // as in Formatter.formatMessage, only treat it as a pattern if some '{' is followed by a digit
+            int fence = format.length() - 1;
+            for (int i = format.indexOf('{'); i != -1 && i < fence; i = format.indexOf('{', i + 1)) {
+                char digit = format.charAt(i + 1);
+                if (digit >= '0' && digit <= '9') {
+                    return MessageTemplate.format(format, parameters);
+                }
+            }
+            return format;
+        } catch (Exception x) {
+            return format;
+        }
+    }
+
+    /**
+     * @return whether {@link #format} is overridden, so that only its result can be used
+     */
+    boolean isFormatOverridden() {
+        return customFormat;
+    }
+
+    /**
+     * @return whether {@link #formatTime} is overridden, so that timestamps are not necessarily rendered by {@link TimestampRenderer}
+     */
+    boolean isFormatTimeOverridden() {
+        return customFormatTime;
+    }
+
+    /**
+     * Appends the abbreviated source class, or the logger name if that is unknown, as in {@link #format}.
+     */
+    void appendSourceClass(LogRecord record, StringBuilder builder) {
+        String sourceClass;
+        if (record.getSourceClassName() == null) {
+            sourceClass = record.getLoggerName();
+        } else {
+            sourceClass = record.getSourceClassName();
+        }
+        int targetLength = record.getSourceMethodName() != null ? 32 : 40;
+        if (customAbbreviateClassName) {
+            builder.append(abbreviateClassName(sourceClass, targetLength));
+        } else {
+            appendAbbreviatedClassName(builder, sourceClass, targetLength);
+        }
+    }
+
+    /**
+     * Appends the rendering of the thrown exception, if any, as in {@link #format}.
+     */
+    @SuppressFBWarnings(
+            value = {"DE_MIGHT_IGNORE"},
+            justification = "The exception wasn't thrown on our stack frame"
+    )
+    void appendThrown(LogRecord record, StringBuilder builder) {
+        Throwable thrown = record.getThrown();
+        if (thrown != null) {
+            FormatterMetrics metrics = FormatterMetrics.current;
+            long start = metrics != null ? System.nanoTime() : 0;
+            int mark = builder.length();
+            try {
+                StackTraceDeduplicator deduplicator = this.deduplicator;
+                StackTraceDeduplicator.Occurrence occurrence = deduplicator != null ? deduplicator.record(thrown, record.getMillis()) : null;
+                if (occurrence == null) {
+                    appendThrowable(builder, thrown);
+                } else if (occurrence.isFirst()) {
+                    doPrintStackTrace(builder, thrown, null, "", new HashSet<>());
+                    builder.append("[stack trace ").append(StackTraceDeduplicator.id(occurrence.fingerprint())).append("]");
+                    if (occurrence.previousRepeats() > 0) {
+                        builder.append(" previously repeated ").append(occurrence.previousRepeats()).append(" times");
+                    }
+                    builder.append(LINE_SEPARATOR);
+                } else {
+                    builder.append("[stack trace ").append(StackTraceDeduplicator.id(occurrence.fingerprint()))
+                            .append(" repeated, occurrence ").append(occurrence.count()).append(" since ");
+                    TimestampRenderer.append(builder, occurrence.windowStart());
+                    builder.append("] ");
+                    transformMessage(builder, thrown.toString(), "");
+                    builder.append(LINE_SEPARATOR);
+                }
             } catch (Exception e) {
                 // ignore
+                builder.setLength(mark);
+            }
+            if (metrics != null) {
+                metrics.recordThrowable(thrown.getClass().getName(), builder.length() - mark, System.nanoTime() - start);
             }
         }
+    }
+
+    /**
+     * Default for {@link #setStackTraceDeduplicationWindow}, in seconds; 0 disables deduplication.
+     */
+    static final int DEDUPLICATION_WINDOW_SECONDS = Integer.getInteger(SupportLogFormatter.class.getName() + ".DEDUPLICATION_WINDOW_SECONDS", 0);
+
+    /**
+     * Number of distinct stack traces remembered when deduplication is enabled.
+     */
+    static final int DEDUPLICATION_TABLE_SIZE = Integer.getInteger(SupportLogFormatter.class.getName() + ".DEDUPLICATION_TABLE_SIZE", 1024);
 
-        return builder.toString();
+    @CheckForNull
+    private volatile StackTraceDeduplicator deduplicator = DEDUPLICATION_WINDOW_SECONDS > 0
+            ? new StackTraceDeduplicator(TimeUnit.SECONDS.toMillis(DEDUPLICATION_WINDOW_SECONDS), DEDUPLICATION_TABLE_SIZE) : null;
+
+    /**
+     * Enables or disables abbreviation of repeated stack traces.
+     * While enabled, a throwable chain with the same types, frames and messages (ignoring digits) as one rendered in full
+     * within the given window is printed as a single line referring to the full rendering by its fingerprint.
+     * Once the window has passed, the trace is rendered in full again, noting how often it was repeated meanwhile.
+     * @param window how long to abbreviate repeats for, or null or zero to always render traces in full
+     */
+    public void setStackTraceDeduplicationWindow(@CheckForNull Duration window) {
+        deduplicator = window == null || window.isZero() || window.isNegative() ? null : new StackTraceDeduplicator(window.toMillis(), DEDUPLICATION_TABLE_SIZE);
+    }
+
+    /**
+     * @return the window set by {@link #setStackTraceDeduplicationWindow}, or null if deduplication is disabled
+     */
+    @CheckForNull
+    public Duration getStackTraceDeduplicationWindow() {
+        StackTraceDeduplicator deduplicator = this.deduplicator;
+        return deduplicator == null ? null : Duration.ofMillis(deduplicator.getWindowMillis());
+    }
+
+    /**
+     * Summarizes stack traces which have been abbreviated since the previous call, one line each,
+     * leaving out those whose window has ended since their next full rendering reports the repeats anyway.
+     * Nothing calls this automatically; it is meant to be logged or included in diagnostics periodically.
+     * @return the summary, empty if deduplication is disabled or nothing has been repeated since the previous call
+     */
+    @NonNull
+    public String summarizeRepeatedStackTraces() {
+        StackTraceDeduplicator deduplicator = this.deduplicator;
+        if (deduplicator == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        deduplicator.appendSummary(sb, System.currentTimeMillis());
+        return sb.toString();
     }
 
     public String abbreviateClassName(String fqcn, int targetLength) {
         if (fqcn == null) {
             return "-";
         }
-        int fqcnLength = fqcn.length();
-        if (fqcnLength < targetLength) {
+        if (fqcn.length() < targetLength || fqcn.indexOf('.') == -1) {
             return fqcn;
         }
-        int[] indexes = new int[16];
-        int[] lengths = new int[17];
-        int count = 0;
-        for (int i = fqcn.indexOf('.'); i != -1 && count < indexes.length; i = fqcn.indexOf('.', i + 1)) {
-            indexes[count++] = i;
-        }
-        if (count == 0) {
-            return fqcn;
+        BoundedCache<String> cache = abbreviationCache(targetLength);
+        if (cache != null) {
+            return cachedAbbreviation(cache, fqcn, targetLength);
         }
         StringBuilder buf = new StringBuilder(targetLength);
+        doAppendAbbreviatedClassName(buf, fqcn, targetLength);
+        return buf.toString();
+    }
+
+    /**
+     * Number of abbreviated class names cached for each of the two lengths used by {@link #format}, or 0 to disable caching.
+     */
+    static final int ABBREVIATION_CACHE_SIZE = Integer.getInteger(SupportLogFormatter.class.getName() + ".ABBREVIATION_CACHE_SIZE", 4096);
+
+    private static final BoundedCache<String> methodSourceAbbreviations = ABBREVIATION_CACHE_SIZE > 0 ? new BoundedCache<>(ABBREVIATION_CACHE_SIZE) : null;
+    private static final BoundedCache<String> classSourceAbbreviations = ABBREVIATION_CACHE_SIZE > 0 ? new BoundedCache<>(ABBREVIATION_CACHE_SIZE) : null;
+
+    @CheckForNull
+    private static BoundedCache<String> abbreviationCache(int targetLength) {
+        switch (targetLength) {
+            case 32:
+                return methodSourceAbbreviations;
+            case 40:
+                return classSourceAbbreviations;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Appends the result of {@link #abbreviateClassName(String, int)}, using a cached result where possible.
+     */
+    private static void appendAbbreviatedClassName(StringBuilder buf, String fqcn, int targetLength) {
+        if (fqcn == null) {
+            buf.append('-');
+            return;
+        }
+        if (fqcn.length() < targetLength) {
+            buf.append(fqcn);
+            return;
+        }
+        BoundedCache<String> cache = abbreviationCache(targetLength);
+        if (cache == null) {
+            doAppendAbbreviatedClassName(buf, fqcn, targetLength);
+        } else {
+            buf.append(cachedAbbreviation(cache, fqcn, targetLength));
+        }
+    }
+
+    private static String cachedAbbreviation(BoundedCache<String> cache, String fqcn, int targetLength) {
+        String abbreviated = cache.get(fqcn);
+        FormatterMetrics metrics = FormatterMetrics.current;
+        if (metrics != null) {
+            metrics.recordLookup(FormatterMetrics.Cache.ABBREVIATION, abbreviated != null);
+        }
+        if (abbreviated == null) {
+            StringBuilder sb = new StringBuilder(targetLength);
+            doAppendAbbreviatedClassName(sb, fqcn, targetLength);
+            abbreviated = sb.toString();
+            cache.put(fqcn, abbreviated);
+        }
+        return abbreviated;
+    }
+
+    private static void doAppendAbbreviatedClassName(StringBuilder buf, String fqcn, int targetLength) {
+        int fqcnLength = fqcn.length();
+        // Shorten up to 16 package segments to a single character each, leftmost first, until the target length is reached.
         int requiredSavings = fqcnLength - targetLength;
-        for (int i = 0; i < count; i++) {
-            int previous = i > 0 ? indexes[i - 1] : -1;
-            int available = indexes[i] - previous - 1;
+        int previous = -1;
+        int count = 0;
+        for (int i = fqcn.indexOf('.'); i != -1 && count < 16; i = fqcn.indexOf('.', i + 1)) {
+            int available = i - previous - 1;
             int length = requiredSavings > 0 ? Math.min(available, 1) : available;
             requiredSavings -= available - length;
-            lengths[i] = length + 1;
-        }
-        lengths[count] = fqcnLength - indexes[count - 1];
-        for (int i = 0; i <= count; i++) {
-            if (i == 0) {
-                buf.append(fqcn, 0, lengths[i] - 1);
-            } else {
-                buf.append(fqcn, indexes[i - 1], indexes[i - 1] + lengths[i]);
+            if (count > 0) {
+                buf.append('.');
             }
+            buf.append(fqcn, previous + 1, previous + 1 + length);
+            previous = i;
+            count++;
         }
-        return buf.toString();
+        // previous is now the last dot considered (or -1 if there was none), so this appends the remainder unchanged.
+        buf.append(fqcn, previous == -1 ? 0 : previous, fqcnLength);
     }
 
+    /**
+     * Shortens the frames printed for each throwable, or null to print them all.
+     * Configured by {@code FOLDED_FRAME_PREFIXES}, a comma-separated list of class name prefixes (such as {@code java.lang.reflect.})
+     * whose consecutive frames are folded into one line, and {@code MAX_FRAMES}, the number of frames printed per throwable.
+     */
+    @CheckForNull
+    static /* quasi-final */ FrameFilter FRAME_FILTER = FrameFilter.of(
+            System.getProperty(SupportLogFormatter.class.getName() + ".FOLDED_FRAME_PREFIXES", ""),
+            Integer.getInteger(SupportLogFormatter.class.getName() + ".MAX_FRAMES", 0));
+
     // Copied from hudson.Functions, but with external references removed:
     public static String printThrowable(Throwable t) {
         if (t == null) {
             return "No Exception details";
         }
-        StringBuilder s = new StringBuilder();
-        doPrintStackTrace(s, t, null, "", new HashSet<>());
-        return s.toString();
+        FormatterMetrics metrics = FormatterMetrics.current;
+        long start = metrics != null ? System.nanoTime() : 0;
+        FormattingMemo memo = MEMOIZE ? FormattingMemo.get() : null;
+        String rendering = memo != null ? memo.get(t) : null;
+        if (memo != null && metrics != null) {
+            metrics.recordLookup(FormatterMetrics.Cache.THROWABLE_MEMO, rendering != null);
+        }
+        if (rendering == null) {
+            StringBuilder s = new StringBuilder();
+            try {
+                doPrintStackTrace(s, t, null, "", new HashSet<>());
+            } catch (IOException x) {
+                throw new AssertionError(x); // StringBuilder does not throw
+            }
+            rendering = s.toString();
+            if (memo != null) {
+                memo.put(t, rendering);
+            }
+        }
+        if (metrics != null) {
+            metrics.recordThrowable(t.getClass().getName(), rendering.length(), System.nanoTime() - start);
+        }
+        return rendering;
+    }
+
+    /**
+     * Appends {@link #printThrowable(Throwable)}, reusing or remembering the rendering if {@link #MEMOIZE} is on.
+     */
+    private static void appendThrowable(StringBuilder builder, Throwable t) throws IOException {
+        if (!MEMOIZE) {
+            doPrintStackTrace(builder, t, null, "", new HashSet<>());
+            return;
+        }
+        FormattingMemo memo = FormattingMemo.get();
+        String rendering = memo.get(t);
+        FormatterMetrics metrics = FormatterMetrics.current;
+        if (metrics != null) {
+            metrics.recordLookup(FormatterMetrics.Cache.THROWABLE_MEMO, rendering != null);
+        }
+        if (rendering != null) {
+            builder.append(rendering);
+            return;
+        }
+        int start = builder.length();
+        doPrintStackTrace(builder, t, null, "", new HashSet<>());
+        memo.put(t, builder.substring(start));
     }
+
+    /**
+     * Like {@link #printThrowable(Throwable)} but streams the rendering to a destination as it is produced.
+     * @param t the throwable to render, may be null
+     * @param out where to append the rendering
+     * @throws IOException if appending fails
+     */
+    public static void printThrowable(Throwable t, Appendable out) throws IOException {
+        if (t == null) {
+            out.append("No Exception details");
+            return;
+        }
+        FormatterMetrics metrics = FormatterMetrics.current;
+        long start = metrics != null ? System.nanoTime() : 0;
+        String rendering = MEMOIZE ? FormattingMemo.get().get(t) : null;
+        if (MEMOIZE && metrics != null) {
+            metrics.recordLookup(FormatterMetrics.Cache.THROWABLE_MEMO, rendering != null);
+        }
+        if (rendering != null) {
+            out.append(rendering);
+        } else {
+            doPrintStackTrace(out, t, null, "", new HashSet<>());
+        }
+        if (metrics != null) {
+            // the length of a streamed rendering is unknown
+            metrics.recordThrowable(t.getClass().getName(), rendering != null ? rendering.length() : -1, System.nanoTime() - start);
+        }
+    }
+
     @SuppressFBWarnings(value = "INFORMATION_EXPOSURE_THROUGH_AN_ERROR_MESSAGE", justification = "TODO needs triage")
-    private static void doPrintStackTrace(StringBuilder s, Throwable t, Throwable higher, String prefix, Set<Throwable> encountered) {
+    private static void doPrintStackTrace(Appendable s, Throwable t, Throwable higher, String prefix, Set<Throwable> encountered) throws IOException {
         if (!encountered.add(t)) {
-            s.append("<cycle to ").append(transformMessage(t.toString(), prefix)).append(">\n");
+            s.append("<cycle to ");
+            transformMessage(s, t.toString(), prefix);
+            s.append(">\n");
             return;
         }
-        try {
-            if (!t.getClass().getMethod("printStackTrace", PrintWriter.class).equals(Throwable.class.getMethod("printStackTrace", PrintWriter.class))) {
-                StringWriter sw = new StringWriter();
-                t.printStackTrace(new PrintWriter(sw));
-                s.append(transformMessage(sw.toString(), prefix));
-                return;
+        if (ThrowableClassInfo.of(t).customPrintStackTrace) {
+            LineBreakEscapingWriter w = new LineBreakEscapingWriter(s, prefix);
+            PrintWriter pw = new PrintWriter(w);
+            t.printStackTrace(pw);
+            pw.flush();
+            if (pw.checkError()) {
+                throw new IOException("Failed to write stack trace of " + t.getClass().getName());
             }
-        } catch (NoSuchMethodException x) {
-            x.printStackTrace(); // err on the conservative side here
+            w.finish();
+            return;
         }
         Throwable lower = t.getCause();
         if (lower != null) {
@@ -243,15 +744,55 @@ public class SupportLogFormatter extends Formatter {
                 end--;
             }
         }
+        FrameFilter filter = FRAME_FILTER;
+        if (filter != null) {
+            filter.appendFrames(s, trace, end, prefix);
+            return;
+        }
         for (int i = 0; i < end; i++) {
-            s.append(prefix).append("\tat ").append(trace[i]).append(LINE_SEPARATOR);
+            s.append(prefix).append("\tat ").append(trace[i].toString()).append(LINE_SEPARATOR);
         }
     }
+
+    /**
+     * Prints {@link #printThrowable(Throwable)} without leading or trailing whitespace, followed by a line break.
+     * The trace is rendered into a pooled buffer first and then written in a single call,
+     * so concurrent traces are not interleaved and nothing is written if rendering fails.
+     */
     public static void printStackTrace(Throwable t, PrintWriter pw) {
-        pw.println(printThrowable(t).trim());
+        StringBuilder buffer = acquireBuffer();
+        try {
+            renderStackTrace(t, buffer);
+            pw.append(buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
     }
+
+    /**
+     * Prints {@link #printThrowable(Throwable)} without leading or trailing whitespace, followed by a line break.
+     * The trace is rendered into a pooled buffer first and then written in a single call,
+     * so concurrent traces are not interleaved and nothing is written if rendering fails.
+     */
     public static void printStackTrace(Throwable t, PrintStream ps) {
-        ps.println(printThrowable(t).trim());
+        StringBuilder buffer = acquireBuffer();
+        try {
+            renderStackTrace(t, buffer);
+            ps.append(buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private static void renderStackTrace(Throwable t, StringBuilder buffer) {
+        TrimmingAppendable out = new TrimmingAppendable(buffer);
+        try {
+            printThrowable(t, out);
+            out.finish();
+        } catch (IOException x) {
+            throw new AssertionError(x); // StringBuilder does not throw
+        }
+        buffer.append(LINE_SEPARATOR);
     }
 
 }
@@ -0,0 +1,473 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads files written with {@link SupportLogFormatter} back into {@link Entry structured entries}.
+ * <p>
+ * The file is memory-mapped in windows and split at record boundaries (lines starting with a timestamp and {@code [id=}),
+ * so a {@link Stream#parallel() parallel} stream parses separate parts of the file on separate fork-join workers.
+ * Entries are produced lazily, so files larger than the heap can be processed as long as no single record is.
+ * <p>
+ * The line break encoding of {@link SupportLogFormatter#transformMessage(String, String)} is reversed,
+ * with two unavoidable ambiguities: a trailing line break of a message is always read back as {@code \n},
+ * and output written with {@code DO_NOT_FORMAT_FOR_CLI} cannot be told apart from a stack trace,
+ * so any lines after the first are returned as {@link Entry#thrown}.
+ * Output of a {@link SupportLogFormatter#formatTime customized timestamp} is not recognized at all.
+ */
+public final class SupportLogReader {
+
+    /** Size of the regions mapped while scanning for record boundaries. */
+    static final int WINDOW_SIZE = 32 * 1024 * 1024;
+
+    /** Parts of the file smaller than this are not split further. */
+    static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+    /** Length of {@code yyyy-MM-dd HH:mm:ss.SSSZ [id=} at the start of each record. */
+    private static final int RECORD_START_LENGTH = 33;
+
+    private static final String RECORD_START_PATTERN = "0000-00-00 00:00:00.000+0000 [id=";
+
+    private SupportLogReader() {}
+
+    /**
+     * One record of a log file.
+     * @param millis the time of the record
+     * @param threadId the {@link java.util.logging.LogRecord#getLongThreadID}
+     * @param level the {@link java.util.logging.Level#getName name} of the level
+     * @param source the abbreviated source class or logger name
+     * @param method the source method, if it was known
+     * @param message the formatted message with its original line breaks, if there was one
+     * @param thrown the rendering of the thrown exception as per {@link SupportLogFormatter#printThrowable(Throwable)}, if there was one
+     */
+    public record Entry(long millis, long threadId, @NonNull String level, @NonNull String source,
+            @CheckForNull String method, @CheckForNull String message, @CheckForNull String thrown) {}
+
+    /**
+     * Streams the records of a file.
+     * The stream keeps the file open until it is {@link Stream#close closed}, so use it in a try-with-resources block.
+     * Any text before the first record is skipped.
+     * @param file a file written with {@link SupportLogFormatter}
+     * @param parallel whether to return a parallel stream
+     * @return the records in the order of the file
+     * @throws IOException if the file cannot be opened
+     * @throws UncheckedIOException from stream operations if the file cannot be read
+     */
+    @NonNull
+    public static Stream<Entry> entries(@NonNull Path file, boolean parallel) throws IOException {
+        return entries(file, parallel, WINDOW_SIZE, MIN_SPLIT_SIZE);
+    }
+
+    /**
+     * Streams the records in part of a file, such as a {@link LogIndex.Range}.
+     * If the part starts in the middle of a record, the rest of that record is skipped.
+     * @param file a file written with {@link SupportLogFormatter}
+     * @param start the offset in bytes at which to start
+     * @param end the offset in bytes at which to stop, which is limited to the size of the file
+     * @param parallel whether to return a parallel stream
+     * @return the records in the order of the file
+     * @throws IOException if the file cannot be opened
+     * @throws UncheckedIOException from stream operations if the file cannot be read
+     */
+    @NonNull
+    public static Stream<Entry> entries(@NonNull Path file, long start, long end, boolean parallel) throws IOException {
+        return entries(file, start, end, parallel, WINDOW_SIZE, MIN_SPLIT_SIZE);
+    }
+
+    static Stream<Entry> entries(Path file, boolean parallel, int windowSize, long minSplitSize) throws IOException {
+        return entries(file, 0, Long.MAX_VALUE, parallel, windowSize, minSplitSize);
+    }
+
+    static Stream<Entry> entries(Path file, long start, long end, boolean parallel, int windowSize, long minSplitSize) throws IOException {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range " + start + "-" + end);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            RecordSpliterator spliterator = new RecordSpliterator(channel, size, Math.min(start, size), Math.min(end, size), windowSize, minSplitSize);
+            return StreamSupport.stream(spliterator, parallel).onClose(() -> {
+                try {
+                    channel.close();
+                } catch (IOException x) {
+                    throw new UncheckedIOException(x);
+                }
+            });
+        } catch (IOException | RuntimeException x) {
+            channel.close();
+            throw x;
+        }
+    }
+
+    /**
+     * Receives the location and time of each record in a file.
+     */
+    interface RecordVisitor {
+        void visit(long start, long end, long millis) throws IOException;
+    }
+
+    /**
+     * Finds the records in part of a file without parsing them.
+     * @param channel the file
+     * @param start the offset at which to start; the rest of a record starting before it is skipped
+     * @param end the offset at which to stop
+     * @param visitor called for each record in order
+     */
+    static void scan(@NonNull FileChannel channel, long start, long end, @NonNull RecordVisitor visitor) throws IOException {
+        try {
+            long size = channel.size();
+            new RecordSpliterator(channel, size, Math.min(start, size), Math.min(end, size), WINDOW_SIZE, MIN_SPLIT_SIZE).forEachRecordStart(visitor);
+        } catch (UncheckedIOException x) {
+            throw x.getCause();
+        }
+    }
+
+    /**
+     * Checks whether a line starts with {@code yyyy-MM-dd HH:mm:ss.SSSZ [id=}.
+     */
+    static boolean isRecordStart(@NonNull CharSequence text, int start) {
+        if (text.length() - start < RECORD_START_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < RECORD_START_LENGTH; i++) {
+            if (!matches(RECORD_START_PATTERN.charAt(i), text.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRecordStart(ByteBuffer window, int start) {
+        for (int i = 0; i < RECORD_START_LENGTH; i++) {
+            if (!matches(RECORD_START_PATTERN.charAt(i), (char) (window.get(start + i) & 0xFF))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(char pattern, char c) {
+        switch (pattern) {
+            case '0':
+                return c >= '0' && c <= '9';
+            case '+':
+                return c == '+' || c == '-';
+            default:
+                return c == pattern;
+        }
+    }
+
+    /**
+     * Parses a single record.
+     * @param record the complete text of a record including its final line break, as produced by {@link SupportLogFormatter#format}
+     * @return the parsed record
+     * @throws IllegalArgumentException if the text does not start a record
+     */
+    @NonNull
+    static Entry parse(@NonNull String record) {
+        if (!isRecordStart(record, 0)) {
+            throw new IllegalArgumentException("Not a log record: " + record.substring(0, Math.min(record.length(), RECORD_START_LENGTH)));
+        }
+        long millis = parseTimestamp(record);
+        int length = record.length();
+        int headerEnd = record.indexOf('\n');
+        if (headerEnd == -1) {
+            headerEnd = length;
+        }
+        int idEnd = record.indexOf(']', RECORD_START_LENGTH);
+        int levelStart = record.indexOf('\t', idEnd);
+        int levelEnd = levelStart == -1 ? -1 : record.indexOf('\t', levelStart + 1);
+        if (idEnd == -1 || levelEnd == -1 || levelEnd > headerEnd) {
+            throw new IllegalArgumentException("Malformed log record: " + record.substring(0, headerEnd));
+        }
+        long threadId = Long.parseLong(record, RECORD_START_LENGTH, idEnd, 10);
+        String level = record.substring(levelStart + 1, levelEnd);
+
+        int sourceStart = levelEnd + 1;
+        int messageStart = record.indexOf(": ", sourceStart);
+        int sourceEnd = messageStart == -1 || messageStart > headerEnd ? headerEnd : messageStart;
+        int hash = record.lastIndexOf('#', sourceEnd - 1);
+        String source;
+        String method;
+        if (hash >= sourceStart) {
+            source = record.substring(sourceStart, hash);
+            method = record.substring(hash + 1, sourceEnd);
+        } else {
+            source = record.substring(sourceStart, sourceEnd);
+            method = null;
+        }
+
+        int cursor = Math.min(headerEnd + 1, length);
+        String message = null;
+        if (sourceEnd < headerEnd) {
+            StringBuilder sb = new StringBuilder(headerEnd - sourceEnd);
+            sb.append(record, sourceEnd + 2, headerEnd);
+            String indicator = SupportLogFormatter.NEWLINE_INDICATOR;
+            while (cursor < length) {
+                String lineBreak;
+                if (record.startsWith("[LF]", cursor) && record.startsWith(indicator, cursor + 4)) {
+                    lineBreak = "\n";
+                } else if (record.startsWith("[CR]", cursor) && record.startsWith(indicator, cursor + 4)) {
+                    lineBreak = "\r";
+                } else if (record.startsWith("[CRLF]", cursor) && record.startsWith(indicator, cursor + 6)) {
+                    lineBreak = "\r\n";
+                } else {
+                    break;
+                }
+                // a message never has a bare \r before a line break it contains, so this can only be part of the line separator
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) == '\r') {
+                    sb.setLength(sb.length() - 1);
+                }
+                int lineEnd = record.indexOf('\n', cursor);
+                if (lineEnd == -1) {
+                    lineEnd = length;
+                }
+                sb.append(lineBreak).append(record, cursor + lineBreak.length() * 2 + 2 + indicator.length(), lineEnd);
+                cursor = Math.min(lineEnd + 1, length);
+            }
+            if (cursor < length && record.charAt(cursor) == '\n') {
+                // a stack trace never starts with an empty line, so this was a trailing line break of the message
+                sb.append('\n');
+                cursor++;
+            }
+            message = sb.toString();
+        }
+        String thrown = cursor < length ? record.substring(cursor) : null;
+        return new Entry(millis, threadId, level, source, method, message, thrown);
+    }
+
+    private static long parseTimestamp(String text) {
+        LocalDate date = LocalDate.of(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2));
+        long millis = date.toEpochDay() * 86_400_000L
+                + digits(text, 11, 2) * 3_600_000L + digits(text, 14, 2) * 60_000L + digits(text, 17, 2) * 1_000L + digits(text, 20, 3);
+        long offsetMinutes = digits(text, 24, 2) * 60L + digits(text, 26, 2);
+        return text.charAt(23) == '-' ? millis + offsetMinutes * 60_000L : millis - offsetMinutes * 60_000L;
+    }
+
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Iterates over the records in part of a file, which starts at a record boundary unless it is the start of the file.
+     * Records are located by scanning a mapped window which is moved forward through the file,
+     * and split so that each piece ends right before the start of a record.
+     */
+    private static final class RecordSpliterator implements Spliterator<Entry> {
+
+        private final FileChannel channel;
+        /** Size of the file when it was opened; anything appended later is ignored. */
+        private final long size;
+        private final long end;
+        private final int windowSize;
+        private final long minSplitSize;
+        private long position;
+        private boolean started;
+        @CheckForNull
+        private ByteBuffer window;
+        private long windowStart;
+
+        RecordSpliterator(FileChannel channel, long size, long start, long end, int windowSize, long minSplitSize) {
+            this.channel = channel;
+            this.size = size;
+            this.position = start;
+            this.end = end;
+            this.windowSize = windowSize;
+            this.minSplitSize = minSplitSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry> action) {
+            long recordEnd = nextRecordEnd();
+            if (recordEnd == -1) {
+                return false;
+            }
+            String text = read(position, recordEnd);
+            position = recordEnd;
+            action.accept(parse(text));
+            return true;
+        }
+
+        void forEachRecordStart(RecordVisitor visitor) throws IOException {
+            long recordEnd;
+            while ((recordEnd = nextRecordEnd()) != -1) {
+                long millis = parseTimestamp(read(position, position + RECORD_START_LENGTH));
+                visitor.visit(position, recordEnd, millis);
+                position = recordEnd;
+            }
+        }
+
+        /**
+         * @return the end of the record at {@link #position}, or -1 if there are no more records
+         */
+        private long nextRecordEnd() {
+            if (!started) {
+                started = true;
+                // skip a preamble before the first record, or the rest of a record when starting in the middle of one
+                position = nextRecordStart(position, end);
+            }
+            if (position >= end) {
+                return -1;
+            }
+            return nextRecordStart(position + 1, end);
+        }
+
+        @Override
+        @CheckForNull
+        public Spliterator<Entry> trySplit() {
+            if (end - position < 2 * minSplitSize) {
+                return null;
+            }
+            long split = nextRecordStart(position + (end - position) / 2, end);
+            if (split >= end) {
+                return null;
+            }
+            RecordSpliterator prefix = new RecordSpliterator(channel, size, position, split, windowSize, minSplitSize);
+            prefix.started = started;
+            position = split;
+            started = true;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // assume typical records of a few hundred bytes
+            return (end - position) / 256;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        /**
+         * Finds the first record starting at or after a position.
+         * @return the start of the record, or {@code limit} if there is none before it
+         */
+        private long nextRecordStart(long from, long limit) {
+            long p = from;
+            if (p > 0 && p < limit && byteAt(p - 1) != '\n') {
+                p = lineBreak(p, limit) + 1;
+            }
+            while (p < limit) {
+                if (recordStartsAt(p)) {
+                    return p;
+                }
+                p = lineBreak(p, limit) + 1;
+            }
+            return limit;
+        }
+
+        /**
+         * Finds the next {@code \n}.
+         * @return its position, or {@code limit} if there is none before it
+         */
+        private long lineBreak(long from, long limit) {
+            long p = from;
+            while (p < limit) {
+                ByteBuffer w = map(p);
+                int n = (int) Math.min(w.limit(), limit - windowStart);
+                for (int i = (int) (p - windowStart); i < n; i++) {
+                    if (w.get(i) == '\n') {
+                        return windowStart + i;
+                    }
+                }
+                p = windowStart + n;
+            }
+            return limit;
+        }
+
+        private byte byteAt(long p) {
+            return map(p).get((int) (p - windowStart));
+        }
+
+        private boolean recordStartsAt(long p) {
+            if (p + RECORD_START_LENGTH > size) {
+                return false;
+            }
+            ByteBuffer w = map(p);
+            if (p + RECORD_START_LENGTH > windowStart + w.limit()) {
+                // straddles the end of the window
+                window = null;
+                w = map(p);
+            }
+            return isRecordStart(w, (int) (p - windowStart));
+        }
+
+        /**
+         * Makes sure the window contains the byte at a position, moving it there if it does not.
+         */
+        private ByteBuffer map(long p) {
+            ByteBuffer w = window;
+            if (w != null && p >= windowStart && p < windowStart + w.limit()) {
+                return w;
+            }
+            // keep the preceding line break mapped too
+            long start = Math.max(0, p - 1);
+            try {
+                w = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+            } catch (IOException x) {
+                throw new UncheckedIOException(x);
+            }
+            window = w;
+            windowStart = start;
+            return w;
+        }
+
+        private String read(long from, long to) {
+            ByteBuffer w = window;
+            byte[] bytes = new byte[Math.toIntExact(to - from)];
+            if (w != null && from >= windowStart && to <= windowStart + w.limit()) {
+                w.get((int) (from - windowStart), bytes);
+            } else {
+                try {
+                    channel.map(FileChannel.MapMode.READ_ONLY, from, bytes.length).get(0, bytes);
+                } catch (IOException x) {
+                    throw new UncheckedIOException(x);
+                }
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.PrintWriter;
+
+/**
+ * Facts about a {@link Throwable} subclass needed to render its stack trace, computed once per class.
+ * Stored in a {@link ClassValue} so repeated errors of the same type need no reflection,
+ * while the cached information goes away together with the class (and its class loader) when it is unloaded.
+ * Instances must therefore never refer to the class itself.
+ */
+final class ThrowableClassInfo {
+
+    private static final ClassValue<ThrowableClassInfo> INFO = new ClassValue<>() {
+        @Override
+        protected ThrowableClassInfo computeValue(Class<?> type) {
+            return new ThrowableClassInfo(type);
+        }
+    };
+
+    /**
+     * Whether the class overrides {@link Throwable#printStackTrace(PrintWriter)},
+     * in which case its own rendering must be used.
+     */
+    final boolean customPrintStackTrace;
+
+    private ThrowableClassInfo(Class<?> type) {
+        boolean custom = false;
+        try {
+            custom = type.getMethod("printStackTrace", PrintWriter.class).getDeclaringClass() != Throwable.class;
+        } catch (NoSuchMethodException x) {
+            x.printStackTrace(); // err on the conservative side here
+        }
+        customPrintStackTrace = custom;
+    }
+
+    @NonNull
+    static ThrowableClassInfo of(@NonNull Throwable t) {
+        return INFO.get(t.getClass());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Renders timestamps as {@code yyyy-MM-dd HH:mm:ss.SSSZ} in UTC, exactly as {@link SimpleDateFormat} would in {@link Locale#ROOT}.
+ * Unlike the per-thread {@link SimpleDateFormat} this replaces, the output does not depend on the default locale:
+ * a default locale such as {@code th_TH} or {@code ar_EG} no longer changes the calendar or the digits,
+ * so log files can always be parsed the same way.
+ * The {@code yyyy-MM-dd HH:mm:ss.} prefix is cached for the most recently rendered second,
+ * so that bursts of records only need to patch in the milliseconds.
+ */
+final class TimestampRenderer {
+
+    static final String PATTERN = "yyyy-MM-dd HH:mm:ss.SSSZ";
+
+    /** Before this instant {@link SimpleDateFormat} uses the Julian calendar, which {@code java.time} does not model. */
+    private static final long GREGORIAN_CUTOVER_MILLIS = -12219292800000L;
+    /** {@code 9999-12-31T23:59:59.999Z}; later years no longer fit into four digits. */
+    private static final long MAX_FOUR_DIGIT_YEAR_MILLIS = 253402300799999L;
+
+    private record CachedSecond(long epochSecond, @NonNull String prefix) {}
+
+    private static volatile CachedSecond cached = new CachedSecond(Long.MIN_VALUE, "");
+
+    private TimestampRenderer() {}
+
+    static String format(long millis) {
+        StringBuilder sb = new StringBuilder(PATTERN.length());
+        append(sb, millis);
+        return sb.toString();
+    }
+
+    static void append(@NonNull StringBuilder sb, long millis) {
+        if (millis < GREGORIAN_CUTOVER_MILLIS || millis > MAX_FOUR_DIGIT_YEAR_MILLIS) {
+            sb.append(legacyFormat(millis));
+            return;
+        }
+        long epochSecond = Math.floorDiv(millis, 1000);
+        int millisOfSecond = Math.floorMod(millis, 1000);
+        CachedSecond c = cached;
+        if (c.epochSecond != epochSecond) {
+            c = new CachedSecond(epochSecond, prefix(epochSecond));
+            cached = c;
+        }
+        sb.append(c.prefix);
+        sb.append((char) ('0' + millisOfSecond / 100));
+        sb.append((char) ('0' + millisOfSecond / 10 % 10));
+        sb.append((char) ('0' + millisOfSecond % 10));
+        sb.append("+0000");
+    }
+
+    private static String prefix(long epochSecond) {
+        LocalDateTime t = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        StringBuilder sb = new StringBuilder(20);
+        appendDigits(sb, t.getYear(), 4);
+        sb.append('-');
+        appendDigits(sb, t.getMonthValue(), 2);
+        sb.append('-');
+        appendDigits(sb, t.getDayOfMonth(), 2);
+        sb.append(' ');
+        appendDigits(sb, t.getHour(), 2);
+        sb.append(':');
+        appendDigits(sb, t.getMinute(), 2);
+        sb.append(':');
+        appendDigits(sb, t.getSecond(), 2);
+        sb.append('.');
+        return sb.toString();
+    }
+
+    private static void appendDigits(StringBuilder sb, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static String legacyFormat(long millis) {
+        SimpleDateFormat f = new SimpleDateFormat(PATTERN, Locale.ROOT);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return f.format(new Date(millis));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+
+/**
+ * Passes text on to another {@link Appendable} with leading and trailing whitespace removed, as {@link String#trim} would,
+ * without having to collect the whole text first.
+ * Whitespace is held back until it is known not to be trailing,
+ * and output is forwarded in chunks to keep the number of calls to the destination low.
+ */
+final class TrimmingAppendable implements Appendable {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Appendable out;
+    private final StringBuilder chunk = new StringBuilder();
+    private final StringBuilder whitespace = new StringBuilder();
+    private boolean started;
+
+    TrimmingAppendable(@NonNull Appendable out) {
+        this.out = out;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        CharSequence s = csq == null ? "null" : csq;
+        return append(s, 0, s.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            return append("null", start, end);
+        }
+        int last = end - 1;
+        while (last >= start && csq.charAt(last) <= ' ') {
+            last--;
+        }
+        if (last < start) {
+            if (started) {
+                whitespace.append(csq, start, end);
+            }
+            return this;
+        }
+        int first = start;
+        if (!started) {
+            while (csq.charAt(first) <= ' ') {
+                first++;
+            }
+            started = true;
+        }
+        chunk.append(whitespace).append(csq, first, last + 1);
+        whitespace.setLength(0);
+        whitespace.append(csq, last + 1, end);
+        if (chunk.length() >= CHUNK_SIZE) {
+            out.append(chunk);
+            chunk.setLength(0);
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (c <= ' ') {
+            if (started) {
+                whitespace.append(c);
+            }
+            return this;
+        }
+        started = true;
+        chunk.append(whitespace).append(c);
+        whitespace.setLength(0);
+        return this;
+    }
+
+    /**
+     * Forwards any remaining text, dropping trailing whitespace.
+     */
+    void finish() throws IOException {
+        out.append(chunk);
+        chunk.setLength(0);
+        whitespace.setLength(0);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes text as UTF-8 straight into a {@link ByteBuffer}, without an intermediate {@link String} or {@code byte[]}.
+ * Like the encoder used by {@link java.io.OutputStreamWriter}, unpaired surrogates are replaced by {@code '?'}.
+ */
+final class Utf8Encoder {
+
+    private Utf8Encoder() {}
+
+    /**
+     * @return the number of bytes {@link #encode} will produce for the given text
+     */
+    static int encodedLength(@NonNull CharSequence s) {
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 2; // four bytes for two chars
+                    i++;
+                } // else replaced by a single '?'
+            } else {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes text into a buffer, which must have at least {@link #encodedLength} bytes remaining.
+     * @throws BufferOverflowException if there is not enough room, in which case the buffer contents are undefined
+     */
+    static void encode(@NonNull CharSequence s, @NonNull ByteBuffer dst) {
+        if (dst.hasArray()) {
+            int offset = dst.arrayOffset();
+            int position = encode(s, dst.array(), offset + dst.position(), offset + dst.limit());
+            dst.position(position - offset);
+            return;
+        }
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst.put((byte) c);
+            } else if (c < 0x800) {
+                dst.put((byte) (0xC0 | c >> 6));
+                dst.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    dst.put((byte) (0xF0 | codePoint >> 18));
+                    dst.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                    dst.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                    dst.put((byte) (0x80 | codePoint & 0x3F));
+                } else {
+                    dst.put((byte) '?');
+                }
+            } else {
+                dst.put((byte) (0xE0 | c >> 12));
+                dst.put((byte) (0x80 | c >> 6 & 0x3F));
+                dst.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Array based variant of {@link #encode(CharSequence, ByteBuffer)}, which avoids the bounds checks of individual {@link ByteBuffer#put} calls.
+     * @return the position after the last byte written
+     */
+    private static int encode(CharSequence s, byte[] dst, int position, int limit) {
+        int length = s.length();
+        int p = position;
+        int i = 0;
+        // ASCII fast path
+        for (int asciiEnd = Math.min(length, limit - p); i < asciiEnd; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            dst[p++] = (byte) c;
+        }
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                checkRoom(p, 1, limit);
+                dst[p++] = (byte) c;
+            } else if (c < 0x800) {
+                checkRoom(p, 2, limit);
+                dst[p++] = (byte) (0xC0 | c >> 6);
+                dst[p++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    checkRoom(p, 4, limit);
+                    dst[p++] = (byte) (0xF0 | codePoint >> 18);
+                    dst[p++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    dst[p++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    dst[p++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    checkRoom(p, 1, limit);
+                    dst[p++] = (byte) '?';
+                }
+            } else {
+                checkRoom(p, 3, limit);
+                dst[p++] = (byte) (0xE0 | c >> 12);
+                dst[p++] = (byte) (0x80 | c >> 6 & 0x3F);
+                dst[p++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return p;
+    }
+
+    private static void checkRoom(int position, int bytes, int limit) {
+        if (position + bytes > limit) {
+            throw new BufferOverflowException();
+        }
+    }
+}
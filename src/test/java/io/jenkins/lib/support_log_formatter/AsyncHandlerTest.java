@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+class AsyncHandlerTest {
+
+    @Test
+    void formatsOnConsumerThread() {
+        CollectingHandler target = new CollectingHandler();
+        AsyncHandler handler = new AsyncHandler(target);
+        for (int i = 0; i < 1000; i++) {
+            handler.publish(new LogRecord(Level.INFO, "message " + i));
+        }
+        handler.flush();
+        assertThat(target.messages, hasSize(1000));
+        assertThat(target.messages.get(999), is("message 999"));
+        assertThat(target.threads.contains(Thread.currentThread().getName()), is(false));
+        assertThat(target.flushes.get(), greaterThan(0));
+        handler.close();
+        assertThat(target.closed, is(true));
+        assertThat(handler.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    void snapshotsParameters() {
+        CollectingHandler target = new CollectingHandler();
+        AsyncHandler handler = new AsyncHandler(target);
+        StringBuilder mutable = new StringBuilder("before");
+        AtomicInteger counter = new AtomicInteger(1);
+        LogRecord record = new LogRecord(Level.INFO, "{0} {1}");
+        record.setParameters(new Object[] {mutable, counter});
+        handler.publish(record);
+        mutable.replace(0, mutable.length(), "after");
+        counter.set(2);
+        handler.close();
+        assertThat(target.messages, contains("before 1"));
+    }
+
+    @Test
+    void snapshotCapturesCaller() {
+        CollectingHandler target = new CollectingHandler();
+        AsyncHandler handler = new AsyncHandler(target);
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.info("hello");
+        handler.close();
+        assertThat(target.records, hasSize(1));
+        assertThat(target.records.get(0).getSourceClassName(), is(AsyncHandlerTest.class.getName()));
+        assertThat(target.records.get(0).getSourceMethodName(), is("snapshotCapturesCaller"));
+    }
+
+    @Test
+    void dropOldest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingHandler target = new CollectingHandler(release);
+        AsyncHandler handler = new AsyncHandler(target, 4, AsyncHandler.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 100; i++) {
+            handler.publish(new LogRecord(Level.INFO, "message " + i));
+        }
+        release.countDown();
+        handler.close();
+        assertThat(handler.getDroppedCount(), greaterThan(0L));
+        assertThat(target.messages.size() + handler.getDroppedCount(), is(100L));
+        assertThat(target.messages.get(target.messages.size() - 1), is("message 99"));
+    }
+
+    @Test
+    void dropBelowLevel() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingHandler target = new CollectingHandler(release);
+        AsyncHandler handler = new AsyncHandler(target, 4, AsyncHandler.OverflowPolicy.DROP_BELOW_LEVEL);
+        handler.publish(new LogRecord(Level.FINE, "first"));
+        target.entered.await();
+        for (int i = 0; i < 100; i++) {
+            handler.publish(new LogRecord(Level.FINE, "fine " + i));
+        }
+        assertThat(handler.getDroppedCount(), is(96L));
+        CountDownLatch warning = new CountDownLatch(1);
+        Thread warner = new Thread(() -> {
+            warning.countDown();
+            handler.publish(new LogRecord(Level.WARNING, "important"));
+        });
+        warner.start();
+        warning.await();
+        // waitForRoom parks the thread until the consumer makes room
+        while (warner.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+        assertThat("blocked rather than dropped", handler.getDroppedCount(), is(96L));
+        release.countDown();
+        warner.join(TimeUnit.SECONDS.toMillis(30));
+        handler.close();
+        assertThat(target.messages.get(target.messages.size() - 1), is("important"));
+        assertThat(handler.getDroppedCount(), is(96L));
+        assertThat(target.messages.size() + handler.getDroppedCount(), is(102L));
+    }
+
+    @Test
+    void closeAccountsForConcurrentRecords() throws Exception {
+        CollectingHandler target = new CollectingHandler();
+        AsyncHandler handler = new AsyncHandler(target, 16, AsyncHandler.OverflowPolicy.BLOCK);
+        CountDownLatch started = new CountDownLatch(8);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 1000; i++) {
+                    handler.publish(new LogRecord(Level.INFO, "message " + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        started.await();
+        handler.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        handler.close();
+        assertThat(target.closes.get(), is(1));
+        assertThat(target.messages.size() + handler.getDroppedCount(), is(8000L));
+    }
+
+    @Test
+    void concurrentProducers() throws Exception {
+        CollectingHandler target = new CollectingHandler();
+        AsyncHandler handler = new AsyncHandler(target, 16, AsyncHandler.OverflowPolicy.BLOCK);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    handler.publish(new LogRecord(Level.INFO, thread + ":" + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        handler.close();
+        assertThat(target.messages, hasSize(8000));
+        assertThat(handler.getDroppedCount(), is(0L));
+    }
+
+    private static final class CollectingHandler extends Handler {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        final List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger flushes = new AtomicInteger();
+        final AtomicInteger closes = new AtomicInteger();
+        final CountDownLatch release;
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile boolean closed;
+
+        CollectingHandler() {
+            this(new CountDownLatch(0));
+        }
+
+        CollectingHandler(CountDownLatch release) {
+            this.release = release;
+            setFormatter(new SupportLogFormatter());
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException x) {
+                throw new AssertionError(x);
+            }
+            messages.add(getFormatter().formatMessage(record));
+            records.add(record);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closes.incrementAndGet();
+            closed = true;
+        }
+    }
+}
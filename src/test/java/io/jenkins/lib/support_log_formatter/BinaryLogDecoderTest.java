@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.jupiter.api.Test;
+
+class BinaryLogDecoderTest {
+
+    static LogRecord record(int i) {
+        LogRecord record = new LogRecord(i % 5 == 0 ? Level.WARNING : Level.INFO, i % 3 == 0 ? "message {0}\nwith two lines" : "message {0}");
+        record.setParameters(new Object[] {i});
+        record.setLongThreadID(i % 7);
+        record.setInstant(Instant.ofEpochMilli(1_767_225_600_000L + i * 37L - (i % 4) * 100));
+        switch (i % 4) {
+            case 0:
+                record.setSourceClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup");
+                record.setSourceMethodName("run");
+                break;
+            case 1:
+                record.setSourceClassName("hudson.model.Queue");
+                break;
+            case 2:
+                record.setLoggerName("some.logger");
+                break;
+            default:
+                record.setMessage(null);
+        }
+        if (i % 10 == 0) {
+            Exception x = new IllegalStateException("failure " + i, new IOException("cause\r\nwith CRLF"));
+            x.addSuppressed(new RuntimeException());
+            record.setThrown(x);
+        }
+        return record;
+    }
+
+    private static String roundTrip(SupportLogFormatter encoding, SupportLogFormatter expected) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryLogEncoder encoder = new BinaryLogEncoder(bytes, encoding);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            LogRecord record = record(i);
+            encoder.write(record);
+            text.append(expected.format(record));
+        }
+        StringBuilder decoded = new StringBuilder();
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(bytes.toByteArray()));
+        while (decoder.next(decoded)) {
+            // keep going
+        }
+        assertThat(decoded.toString(), is(text.toString()));
+        return text.toString();
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        roundTrip(new SupportLogFormatter(), new SupportLogFormatter());
+    }
+
+    @Test
+    void deduplicatedStackTraces() throws Exception {
+        SupportLogFormatter encoding = new SupportLogFormatter();
+        encoding.setStackTraceDeduplicationWindow(Duration.ofSeconds(10));
+        SupportLogFormatter expected = new SupportLogFormatter();
+        expected.setStackTraceDeduplicationWindow(Duration.ofSeconds(10));
+        assertThat(roundTrip(encoding, expected).contains(" repeated, occurrence "), is(true));
+    }
+
+    static class CustomFormatter extends SupportLogFormatter {
+        @Override
+        protected String formatTime(LogRecord record) {
+            return "at " + record.getMillis();
+        }
+
+        @Override
+        public String abbreviateClassName(String fqcn, int targetLength) {
+            return "<" + fqcn + ">";
+        }
+    }
+
+    @Test
+    void overrides() throws Exception {
+        roundTrip(new CustomFormatter(), new CustomFormatter());
+        assertThrows(IllegalArgumentException.class, () -> new BinaryLogEncoder(new ByteArrayOutputStream(), new SupportLogFormatter() {
+            @Override
+            public String format(LogRecord record) {
+                return "custom";
+            }
+        }));
+    }
+
+    @Test
+    void sessions() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        StringBuilder text = new StringBuilder();
+        for (int session = 0; session < 3; session++) {
+            BinaryLogEncoder encoder = new BinaryLogEncoder(bytes, formatter);
+            for (int i = session; i < 100; i += 3) {
+                LogRecord record = record(i);
+                encoder.write(record);
+                text.append(formatter.format(record));
+            }
+        }
+        new BinaryLogEncoder(bytes, formatter);
+        StringBuilder decoded = new StringBuilder();
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(bytes.toByteArray()));
+        while (decoder.next(decoded)) {
+            // keep going
+        }
+        assertThat(decoded.toString(), is(text.toString()));
+    }
+
+    @Test
+    void corrupt() throws Exception {
+        assertThat(new BinaryLogDecoder(new ByteArrayInputStream(new byte[0])).next(new StringBuilder()), is(false));
+        assertThrows(StreamCorruptedException.class,
+                () -> new BinaryLogDecoder(new ByteArrayInputStream("2026-01-01 plain text".getBytes(StandardCharsets.UTF_8))).next(new StringBuilder()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryLogEncoder(bytes, new SupportLogFormatter()).write(record(0));
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+        assertThrows(EOFException.class, () -> new BinaryLogDecoder(new ByteArrayInputStream(truncated)).next(new StringBuilder()));
+    }
+}
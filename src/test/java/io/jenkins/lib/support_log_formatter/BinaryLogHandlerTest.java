@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryLogHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void smallerThanText() throws Exception {
+        Path binary = dir.resolve("logs/test.bin");
+        Path text = dir.resolve("logs/test.log");
+        for (int run = 0; run < 2; run++) {
+            BinaryLogHandler binaryHandler = new BinaryLogHandler(binary);
+            binaryHandler.setAutoFlush(run == 0);
+            FileChannelHandler textHandler = new FileChannelHandler(text);
+            for (int i = 0; i < 5000; i++) {
+                LogRecord record = BinaryLogDecoderTest.record(i);
+                binaryHandler.publish(record);
+                textHandler.publish(record);
+            }
+            binaryHandler.close();
+            textHandler.close();
+        }
+        StringBuilder decoded = new StringBuilder();
+        BinaryLogDecoder.decode(binary, decoded);
+        assertThat(decoded.toString(), is(Files.readString(text, StandardCharsets.UTF_8)));
+        assertThat(Files.size(binary), lessThan(Files.size(text) / 3));
+    }
+
+    @Test
+    void formatter() throws Exception {
+        BinaryLogHandler handler = new BinaryLogHandler(dir.resolve("test.bin"));
+        assertThrows(IllegalArgumentException.class, () -> handler.setFormatter(new SimpleFormatter()));
+        handler.setFormatter(new BinaryLogDecoderTest.CustomFormatter());
+        handler.publish(BinaryLogDecoderTest.record(1));
+        handler.close();
+        StringBuilder decoded = new StringBuilder();
+        BinaryLogDecoder.decode(handler.getFile(), decoded);
+        assertThat(decoded.toString(), is(new BinaryLogDecoderTest.CustomFormatter().format(BinaryLogDecoderTest.record(1))));
+    }
+}
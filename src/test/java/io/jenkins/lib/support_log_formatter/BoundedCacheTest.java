@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+    @Test
+    void getAndPut() {
+        BoundedCache<String> cache = new BoundedCache<>(16);
+        assertThat(cache.get("a.b.C"), nullValue());
+        cache.put("a.b.C", "C");
+        assertThat(cache.get("a.b.C"), is("C"));
+        assertThat(cache.get(new String("a.b.C")), is("C"));
+        assertThat(cache.get("a.b.D"), nullValue());
+    }
+
+    @Test
+    void bounded() {
+        BoundedCache<Integer> cache = new BoundedCache<>(100);
+        assertThat(cache.capacity(), is(128));
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("key" + i, i);
+        }
+        int present = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Integer value = cache.get("key" + i);
+            if (value != null) {
+                assertThat(value, is(i));
+                present++;
+            }
+        }
+        assertThat(present <= cache.capacity(), is(true));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<>(0));
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        BoundedCache<String> cache = new BoundedCache<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        String key = "key" + (i % 500);
+                        String value = cache.get(key);
+                        assertThat(value, anyOf(nullValue(), is("value of " + key)));
+                        if (value == null) {
+                            cache.put(key, "value of " + key);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
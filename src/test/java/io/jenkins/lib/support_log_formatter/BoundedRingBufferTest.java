@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class BoundedRingBufferTest {
+
+    @Test
+    void fifo() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(3);
+        assertThat(buffer.capacity(), is(4));
+        assertThat(buffer.poll(), nullValue());
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.offer(i), is(true));
+            }
+            assertThat(buffer.offer(4), is(false));
+            assertThat(buffer.size(), is(4));
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.poll(), is(i));
+            }
+            assertThat(buffer.poll(), nullValue());
+            assertThat(buffer.isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        BoundedRingBuffer<Long> buffer = new BoundedRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                while (count.get() < (long) producers * perProducer) {
+                    Long value = buffer.poll();
+                    if (value != null) {
+                        sum.addAndGet(value);
+                        count.incrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(count.get(), is((long) producers * perProducer));
+        assertThat(sum.get(), is(producers * ((long) perProducer * (perProducer + 1) / 2)));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.matchesPattern;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileChannelHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    static LogRecord record(int i) {
+        LogRecord record = new LogRecord(Level.INFO, "message number " + i + " » café");
+        record.setLongThreadID(1);
+        record.setSourceClassName("some.pkg.Catcher");
+        record.setSourceMethodName("robust");
+        record.setInstant(Instant.ofEpochMilli(1_767_225_600_000L + i));
+        return record;
+    }
+
+    @Test
+    void writesSameAsFormatter() throws Exception {
+        Path log = dir.resolve("logs/test.log");
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        StringBuilder expected = new StringBuilder();
+        for (boolean direct : new boolean[] {false, true}) {
+            FileChannelHandler handler = new FileChannelHandler(log, 0, 1, direct);
+            handler.setAutoFlush(direct);
+            for (int i = 0; i < 5000; i++) {
+                LogRecord record = record(i);
+                if (i == 1234) {
+                    record.setThrown(new Exception("big\n" + "x".repeat(FileChannelHandler.BUFFER_SIZE * 2)));
+                }
+                handler.publish(record);
+                expected.append(formatter.format(record));
+            }
+            handler.close();
+        }
+        assertThat(Files.readString(log, StandardCharsets.UTF_8), is(expected.toString()));
+    }
+
+    @Test
+    void rotates() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log, 10_000, 3, false);
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            handler.publish(record(i));
+            all.append(formatter.format(record(i)));
+        }
+        handler.close();
+        String current = Files.readString(log, StandardCharsets.UTF_8);
+        String previous = Files.readString(dir.resolve("test.log.1"), StandardCharsets.UTF_8);
+        String older = Files.readString(dir.resolve("test.log.2"), StandardCharsets.UTF_8);
+        assertThat(Files.exists(dir.resolve("test.log.3")), is(false));
+        for (String content : new String[] {current, previous, older}) {
+            assertThat((long) content.getBytes(StandardCharsets.UTF_8).length, lessThanOrEqualTo(10_000L));
+        }
+        // rotation happens at record boundaries, so the three files are the tail of everything logged
+        assertThat(all.toString().endsWith(older + previous + current), is(true));
+        assertThat(current.endsWith(formatter.format(record(999))), is(true));
+    }
+
+    @Test
+    void loggingWhileFormatting() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log);
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        Object noisy = new Object() {
+            @Override
+            public String toString() {
+                logger.info("nested");
+                return "NOISY";
+            }
+        };
+        logger.log(Level.INFO, "outer {0}", noisy);
+        handler.close();
+        List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+        assertThat(lines, hasSize(2));
+        assertThat(lines.get(0), matchesPattern("2\\d{3}-.*\tINFO\t.+: nested"));
+        assertThat(lines.get(1), matchesPattern("2\\d{3}-.*\tINFO\t.+: outer NOISY"));
+    }
+
+    @Test
+    void keepsAppendingWhenArchivingFails() throws Exception {
+        Path log = dir.resolve("test.log");
+        AtomicBoolean broken = new AtomicBoolean(true);
+        FileChannelHandler handler = new FileChannelHandler(log, 1000, 2, false) {
+            @Override
+            protected void archive(Path file) throws IOException {
+                if (broken.get()) {
+                    throw new IOException("file is in use");
+                }
+                super.archive(file);
+            }
+        };
+        List<Integer> errors = new ArrayList<>();
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public synchronized void error(String msg, Exception ex, int code) {
+                errors.add(code);
+            }
+        });
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            handler.publish(record(i));
+            expected.append(formatter.format(record(i)));
+        }
+        // over 4000 bytes, but rotation is only attempted again once the file has grown by another 1000 bytes
+        assertThat(errors, is(Collections.nCopies(4, ErrorManager.WRITE_FAILURE)));
+        assertThat(Files.readString(log, StandardCharsets.UTF_8), is(expected.toString()));
+        assertThat(Files.exists(dir.resolve("test.log.1")), is(false));
+
+        broken.set(false);
+        int i = 50;
+        while (!Files.exists(dir.resolve("test.log.1"))) {
+            handler.publish(record(i));
+            expected.append(formatter.format(record(i++)));
+        }
+        handler.close();
+        String last = formatter.format(record(i - 1));
+        assertThat(Files.readString(dir.resolve("test.log.1"), StandardCharsets.UTF_8), is(expected.substring(0, expected.length() - last.length())));
+        assertThat(Files.readString(log, StandardCharsets.UTF_8), is(last));
+        assertThat(errors.size(), is(4));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+class FormatterMetricsTest {
+
+    @Test
+    void disabledByDefault() {
+        assertThat(FormatterMetrics.get(), nullValue());
+    }
+
+    @Test
+    void formatting() throws Exception {
+        FormatterMetrics metrics = FormatterMetrics.enable();
+        SupportLogFormatter.MEMOIZE = true;
+        try {
+            assertThat(FormatterMetrics.enable(), sameInstance(metrics));
+            SupportLogFormatter formatter = new SupportLogFormatter();
+            LogRecord warning = new LogRecord(Level.WARNING, "failed {0}");
+            warning.setParameters(new Object[] {"twice"});
+            warning.setSourceClassName("some.rather.long.pkg.name.of.the.Catcher");
+            Throwable thrown = new IllegalStateException("oops", new IOException("broken"));
+            // short enough for the output to be remembered
+            for (Throwable t = thrown; t != null; t = t.getCause()) {
+                t.setStackTrace(new StackTraceElement[] {new StackTraceElement("some.pkg.Catcher", "robust", "Catcher.java", 42)});
+            }
+            warning.setThrown(thrown);
+            String text = formatter.format(warning);
+            // reused, so only counted as such
+            formatter.format(warning);
+            StringBuilder builder = new StringBuilder("prefix");
+            formatter.formatTo(new LogRecord(Level.INFO, "hello"), builder);
+
+            assertThat(metrics.getRecordsFormatted(), is(2L));
+            assertThat(metrics.getRecordsReused(), is(1L));
+            assertThat(metrics.getRecordsByLevel(), is(Map.of("WARNING", 1L, "INFO", 1L)));
+            assertThat(metrics.getOutputCharacters(), is((long) text.length() + builder.length() - "prefix".length()));
+            long[] histogram = metrics.getFormatLatencyHistogram();
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+            assertThat(total, is(2L));
+            assertThat(metrics.getFormatLatencyMaxNanos(), greaterThan(0L));
+            assertThat(metrics.getFormatLatencyMedianNanos(), lessThanOrEqualTo(metrics.getFormatLatency99thPercentileNanos()));
+            assertThat(metrics.getFormatLatency99thPercentileNanos(), lessThanOrEqualTo(metrics.getFormatLatencyMaxNanos()));
+            assertThat(metrics.getFormatNanos(), greaterThanOrEqualTo(metrics.getFormatLatencyMaxNanos()));
+
+            assertThat(metrics.getThrowablesRendered(), is(1L));
+            assertThat(metrics.getLargestStackTraces(),
+                    contains("java.lang.IllegalStateException (" + (text.length() - text.indexOf('\n') - 1) + " characters)"));
+            assertThat(metrics.getCacheLookups().get("recordMemo"), is(3L));
+            assertThat(metrics.getCacheHitRates().get("recordMemo"), is(1.0 / 3));
+            assertThat(metrics.getCacheLookups().get("throwableMemo"), is(1L));
+            assertThat(metrics.getCacheLookups().get("messageTemplate"), is(1L));
+            assertThat(metrics.getCacheLookups().get("abbreviation"), is(1L));
+
+            ObjectName name = new ObjectName(FormatterMetrics.OBJECT_NAME);
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "RecordsFormatted"), is(2L));
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "RecordsReused"), is(1L));
+
+            metrics.reset();
+            assertThat(metrics.getRecordsFormatted(), is(0L));
+            assertThat(metrics.getRecordsReused(), is(0L));
+            assertThat(metrics.getRecordsByLevel(), is(Map.of()));
+            assertThat(metrics.getLargestStackTraces(), empty());
+            assertThat(metrics.getFormatLatencyMedianNanos(), is(0L));
+        } finally {
+            SupportLogFormatter.MEMOIZE = false;
+            FormatterMetrics.disable();
+        }
+        assertThat(FormatterMetrics.get(), nullValue());
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(FormatterMetrics.OBJECT_NAME)), is(false));
+    }
+
+    @Test
+    void largestStackTraces() {
+        FormatterMetrics metrics = FormatterMetrics.enable();
+        try {
+            for (int i = 1; i <= 2 * FormatterMetrics.LARGEST_STACK_TRACES; i++) {
+                metrics.recordThrowable("T" + i, i * 100, 1);
+            }
+            metrics.recordThrowable("T20", 2000, 1);
+            metrics.recordThrowable("T0", 50, 1);
+            assertThat(metrics.getLargestStackTraces(), contains(
+                    "T20 (2000 characters)", "T19 (1900 characters)", "T18 (1800 characters)", "T17 (1700 characters)", "T16 (1600 characters)",
+                    "T15 (1500 characters)", "T14 (1400 characters)", "T13 (1300 characters)", "T12 (1200 characters)", "T11 (1100 characters)"));
+            assertThat(metrics.getThrowablesRendered(), is(22L));
+        } finally {
+            FormatterMetrics.disable();
+        }
+    }
+
+    @Test
+    void buckets() {
+        assertThat(FormatterMetrics.bucket(0), is(0));
+        assertThat(FormatterMetrics.bucket(1), is(0));
+        assertThat(FormatterMetrics.bucket(2), is(1));
+        assertThat(FormatterMetrics.bucket(1023), is(9));
+        assertThat(FormatterMetrics.bucket(1024), is(10));
+        assertThat(FormatterMetrics.bucket(Long.MAX_VALUE), is(FormatterMetrics.LATENCY_BUCKETS - 1));
+        FormatterMetrics metrics = new FormatterMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.recordFormatted(Level.FINE, 10, 1000);
+        }
+        metrics.recordFormatted(Level.FINE, 10, 100_000);
+        assertThat(metrics.getFormatLatencyMedianNanos(), is(1023L));
+        assertThat(metrics.getFormatLatency99thPercentileNanos(), is(1023L));
+        assertThat(metrics.percentile(1.0), is(100_000L));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FormattingMemoTest {
+
+    private static final Object OWNER = new Object();
+
+    @BeforeEach
+    void enable() {
+        SupportLogFormatter.MEMOIZE = true;
+    }
+
+    @AfterEach
+    void restore() {
+        SupportLogFormatter.MEMOIZE = false;
+    }
+
+    private static LogRecord record() {
+        LogRecord record = new LogRecord(Level.WARNING, "failed {0}");
+        record.setParameters(new Object[] {"twice"});
+        record.setSourceClassName("some.pkg.Catcher");
+        record.setThrown(thrown("oops"));
+        return record;
+    }
+
+    /**
+     * @return a throwable with a short stack trace, whose rendering is not too long to be remembered
+     */
+    private static Throwable thrown(String message) {
+        Throwable t = new IllegalStateException(message);
+        t.setStackTrace(new StackTraceElement[] {new StackTraceElement("some.pkg.Catcher", "robust", "Catcher.java", 42)});
+        return t;
+    }
+
+    @Test
+    void sharedAcrossFormatters() {
+        LogRecord record = record();
+        String text = new SupportLogFormatter().format(record);
+        assertThat(new SupportLogFormatter().format(record), sameInstance(text));
+        StringBuilder builder = new StringBuilder("prefix:");
+        new SupportLogFormatter().formatTo(record, builder);
+        assertThat(builder.toString(), is("prefix:" + text));
+        assertThat(SupportLogFormatter.printThrowable(record.getThrown()), is(text.substring(text.indexOf('\n') + 1)));
+
+        SupportLogFormatter custom = new SupportLogFormatter() {
+            @Override
+            public String abbreviateClassName(String fqcn, int targetLength) {
+                return "custom";
+            }
+        };
+        assertThat(custom.format(record), containsString("\tcustom: failed twice"));
+        assertThat(new SupportLogFormatter().format(record), sameInstance(text));
+    }
+
+    @Test
+    void changedRecord() {
+        LogRecord record = record();
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        String text = formatter.format(record);
+        record.setParameters(new Object[] {"again"});
+        assertThat(formatter.format(record), containsString("failed again"));
+        record.setLevel(Level.INFO);
+        assertThat(formatter.format(record), containsString("\tINFO\t"));
+        record.setThrown(null);
+        assertThat(formatter.format(record), not(containsString("oops")));
+        assertThat(text, containsString("oops"));
+    }
+
+    @Test
+    void changedThrowable() {
+        Throwable t = thrown("oops");
+        String rendering = SupportLogFormatter.printThrowable(t);
+        assertThat(SupportLogFormatter.printThrowable(t), sameInstance(rendering));
+        t.addSuppressed(new RuntimeException("later"));
+        assertThat(SupportLogFormatter.printThrowable(t), containsString("Also:   java.lang.RuntimeException: later"));
+    }
+
+    @Test
+    void deduplicationCountsRecordsOnce() {
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        formatter.setStackTraceDeduplicationWindow(Duration.ofMinutes(1));
+        LogRecord record = record();
+        String text = formatter.format(record);
+        assertThat(formatter.format(record), sameInstance(text));
+        assertThat(new SupportLogFormatter().format(record), not(is(text)));
+        assertThat(formatter.summarizeRepeatedStackTraces(), is(""));
+    }
+
+    @Test
+    void reusedParameterArray() {
+        LogRecord record = record();
+        Object[] parameters = record.getParameters();
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        assertThat(formatter.format(record), containsString("failed twice"));
+        parameters[0] = "again";
+        assertThat(formatter.format(record), containsString("failed again"));
+    }
+
+    @Test
+    void disabledByDefault() {
+        SupportLogFormatter.MEMOIZE = false;
+        LogRecord record = record();
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        String text = formatter.format(record);
+        assertThat(formatter.format(record), not(sameInstance(text)));
+        assertThat(formatter.format(record), is(text));
+    }
+
+    @Test
+    void forgetsCollectedRecords() {
+        FormattingMemo memo = new FormattingMemo();
+        Object owner = new Object();
+        LogRecord record = record();
+        memo.put(owner, record, "text");
+        memo.put(record.getThrown(), "rendering");
+        assertThat(memo.size(), is(2));
+        assertThat(memo.get(owner, record), is("text"));
+        memo.clearReferences();
+        assertThat(memo.size(), is(0));
+        assertThat(memo.get(owner, record), nullValue());
+        assertThat(memo.get(record.getThrown()), nullValue());
+    }
+
+    @Test
+    void doesNotRememberLongResults() {
+        FormattingMemo memo = new FormattingMemo();
+        LogRecord record = record();
+        memo.put(OWNER, record, "x".repeat(FormattingMemo.MAX_LENGTH + 1));
+        memo.put(record.getThrown(), "x".repeat(FormattingMemo.MAX_LENGTH + 1));
+        assertThat(memo.size(), is(0));
+    }
+}
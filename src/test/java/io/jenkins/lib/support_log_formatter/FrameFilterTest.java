@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FrameFilterTest {
+
+    private static StackTraceElement frame(String className) {
+        return new StackTraceElement(className, "call", className.substring(className.lastIndexOf('.') + 1) + ".java", 1);
+    }
+
+    @Test
+    void folds() {
+        FrameFilter filter = new FrameFilter(List.of("org.codehaus.groovy.", "java.lang.reflect.", "org.codehaus.", "", "jdk.internal.reflect.", "java.lang.reflect."), 0);
+        assertThat(filter.folds("java.lang.reflect.Method"), is(true));
+        assertThat(filter.folds("java.lang.reflect."), is(true));
+        assertThat(filter.folds("jdk.internal.reflect.DirectMethodHandleAccessor"), is(true));
+        assertThat(filter.folds("org.codehaus.groovy.runtime.InvokerHelper"), is(true));
+        assertThat(filter.folds("org.codehaus.Other"), is(true));
+        assertThat(filter.folds("java.lang.Thread"), is(false));
+        assertThat(filter.folds("java.lang.reflectx.Method"), is(false));
+        assertThat(filter.folds("a.Before"), is(false));
+        assertThat(filter.folds("z.After"), is(false));
+        assertThat(new FrameFilter(List.of(), 0).folds("java.lang.reflect.Method"), is(false));
+    }
+
+    @Test
+    void of() {
+        assertThat(FrameFilter.of("", 0), nullValue());
+        assertThat(FrameFilter.of(" , ", -1), nullValue());
+        assertThat(FrameFilter.of(" java.lang.reflect. ,sun.reflect.", 0).folds("sun.reflect.NativeMethodAccessorImpl"), is(true));
+    }
+
+    @Test
+    void appendFrames() throws Exception {
+        StackTraceElement[] trace = {
+            frame("app.Main"),
+            frame("java.lang.reflect.Method"),
+            frame("app.Single"),
+            frame("java.lang.reflect.Method"),
+            frame("jdk.internal.reflect.DirectMethodHandleAccessor"),
+            frame("java.lang.reflect.Method"),
+            frame("app.Caller"),
+            frame("java.lang.reflect.Method"),
+            frame("java.lang.reflect.Method"),
+        };
+        FrameFilter filter = new FrameFilter(List.of("java.lang.reflect.", "jdk.internal.reflect."), 0);
+        StringBuilder sb = new StringBuilder();
+        filter.appendFrames(sb, trace, trace.length, ">");
+        String nl = SupportLogFormatter.LINE_SEPARATOR;
+        assertThat(sb.toString(),
+                is(">\tat app.Main.call(Main.java:1)" + nl
+                        + ">\tat java.lang.reflect.Method.call(Method.java:1)" + nl
+                        + ">\tat app.Single.call(Single.java:1)" + nl
+                        + ">\t... 3 frames omitted" + nl
+                        + ">\tat app.Caller.call(Caller.java:1)" + nl
+                        + ">\t... 2 frames omitted" + nl));
+
+        sb.setLength(0);
+        filter.appendFrames(sb, trace, 7, "");
+        assertThat(sb.toString(),
+                is("\tat app.Main.call(Main.java:1)" + nl
+                        + "\tat java.lang.reflect.Method.call(Method.java:1)" + nl
+                        + "\tat app.Single.call(Single.java:1)" + nl
+                        + "\t... 3 frames omitted" + nl
+                        + "\tat app.Caller.call(Caller.java:1)" + nl));
+
+        sb.setLength(0);
+        new FrameFilter(List.of("java.lang.reflect.", "jdk.internal.reflect."), 3).appendFrames(sb, trace, trace.length, "");
+        assertThat(sb.toString(),
+                is("\tat app.Main.call(Main.java:1)" + nl
+                        + "\tat java.lang.reflect.Method.call(Method.java:1)" + nl
+                        + "\tat app.Single.call(Single.java:1)" + nl
+                        + "\t... 6 frames omitted" + nl));
+
+        sb.setLength(0);
+        new FrameFilter(List.of(), 2).appendFrames(sb, trace, 2, "");
+        assertThat(sb.toString(),
+                is("\tat app.Main.call(Main.java:1)" + nl
+                        + "\tat java.lang.reflect.Method.call(Method.java:1)" + nl));
+    }
+
+    @Test
+    void printThrowable() {
+        FrameFilter original = SupportLogFormatter.FRAME_FILTER;
+        try {
+            SupportLogFormatter.FRAME_FILTER = new FrameFilter(List.of("java.lang.reflect."), 0);
+            IllegalStateException cause = new IllegalStateException("inner");
+            // the last two frames are shared with the enclosing throwable, leaving a single reflective frame, which is not folded
+            cause.setStackTrace(new StackTraceElement[] {
+                frame("app.Inner"), frame("java.lang.reflect.Method"), frame("java.lang.reflect.Method"), frame("app.Main")});
+            RuntimeException outer = new RuntimeException("outer", cause);
+            outer.setStackTrace(new StackTraceElement[] {frame("java.lang.reflect.Constructor"), frame("java.lang.reflect.Method"), frame("app.Main")});
+            String nl = SupportLogFormatter.LINE_SEPARATOR;
+            assertThat(SupportLogFormatter.printThrowable(outer),
+                    is("java.lang.IllegalStateException: inner" + nl
+                            + "\tat app.Inner.call(Inner.java:1)" + nl
+                            + "\tat java.lang.reflect.Method.call(Method.java:1)" + nl
+                            + "Caused: java.lang.RuntimeException: outer" + nl
+                            + "\t... 2 frames omitted" + nl
+                            + "\tat app.Main.call(Main.java:1)" + nl));
+        } finally {
+            SupportLogFormatter.FRAME_FILTER = original;
+        }
+    }
+}
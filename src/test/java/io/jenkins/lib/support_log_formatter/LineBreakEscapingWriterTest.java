@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static io.jenkins.lib.support_log_formatter.SupportLogFormatter.transformMessage;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.PrintWriter;
+import org.junit.jupiter.api.Test;
+
+class LineBreakEscapingWriterTest {
+
+    private static final String[] MESSAGES = {
+            "", "foo", "foo\nbar", "foo\rbar", "foo\r\nbar", "foo\n\rbar", "foo\n", "foo\r", "foo\r\n",
+            "\n", "\r\n", "\r\r\n\n", "a\r\nb\r\n", "line one\nline two\nline three\n",
+    };
+
+    @Test
+    void sameAsTransformMessage() throws Exception {
+        for (String message : MESSAGES) {
+            for (String indent : new String[] {"", "\t"}) {
+                // feed the message in every possible pair of chunks, as well as character by character
+                for (int split = 0; split <= message.length(); split++) {
+                    StringBuilder sb = new StringBuilder();
+                    LineBreakEscapingWriter w = new LineBreakEscapingWriter(sb, indent);
+                    w.write(message, 0, split);
+                    w.write(message.toCharArray(), split, message.length() - split);
+                    w.finish();
+                    assertThat(sb.toString(), is(transformMessage(message, indent)));
+                }
+                StringBuilder sb = new StringBuilder();
+                LineBreakEscapingWriter w = new LineBreakEscapingWriter(sb, indent);
+                for (char c : message.toCharArray()) {
+                    w.write(c);
+                }
+                w.finish();
+                assertThat(sb.toString(), is(transformMessage(message, indent)));
+            }
+        }
+    }
+
+    @Test
+    void printWriter() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        LineBreakEscapingWriter w = new LineBreakEscapingWriter(sb, "\t");
+        PrintWriter pw = new PrintWriter(w);
+        pw.println("I");
+        pw.println("am");
+        pw.println("fancy");
+        pw.flush();
+        w.finish();
+        assertThat(sb.toString(), is(transformMessage(String.format("I%nam%nfancy%n"), "\t")));
+    }
+}
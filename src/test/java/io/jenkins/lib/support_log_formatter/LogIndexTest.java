@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogIndexTest {
+
+    private static final long START = 1_767_225_600_000L;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Writes records 10ms apart, but slightly out of order as when several threads log at once.
+     */
+    private static void write(FileChannelHandler handler, int from, int to) {
+        Random random = new Random(from);
+        for (int i = from; i < to; i++) {
+            LogRecord record = new LogRecord(Level.INFO, "message number " + i);
+            record.setSourceClassName("some.pkg.Catcher");
+            record.setInstant(Instant.ofEpochMilli(START + i * 10L + random.nextInt(50)));
+            if (i % 100 == 0) {
+                record.setThrown(new Exception("failure\nwith two lines"));
+            }
+            handler.publish(record);
+        }
+    }
+
+    private static List<SupportLogReader.Entry> window(Stream<SupportLogReader.Entry> entries, long from, long to) {
+        try (entries) {
+            return entries.filter(e -> e.millis() >= from && e.millis() < to).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void query() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log);
+        handler.setIndexed(true);
+        assertThat(handler.isIndexed(), is(true));
+        write(handler, 0, 50_000);
+        handler.close();
+        long size = Files.size(log);
+        assertThat(Files.size(LogIndex.sidecar(log)), lessThan(size / 1000));
+
+        LogIndex index = LogIndex.read(log);
+        for (long[] window : new long[][] {{START - 1000, START + 5000}, {START + 123_456, START + 150_000}, {START + 499_000, START + 600_000}, {START + 200_000, START + 200_001}}) {
+            LogIndex.Range range = index.query(window[0], window[1]);
+            assertThat(range.end() - range.start(), lessThan(size / 10));
+            List<SupportLogReader.Entry> expected = window(SupportLogReader.entries(log, false), window[0], window[1]);
+            assertThat(window(SupportLogReader.entries(log, range.start(), range.end(), false), window[0], window[1]), is(expected));
+        }
+        assertThat(index.query(START - 10_000, START - 5_000).isEmpty(), is(true));
+        assertThat(index.query(START + 600_000, START + 700_000).isEmpty(), is(true));
+    }
+
+    @Test
+    void rebuild() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log);
+        handler.setIndexed(true);
+        write(handler, 0, 10_000);
+        handler.close();
+        byte[] written = Files.readAllBytes(LogIndex.sidecar(log));
+        LogIndex.rebuild(log);
+        assertThat(Files.readAllBytes(LogIndex.sidecar(log)), is(written));
+    }
+
+    @Test
+    void catchesUp() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log);
+        write(handler, 0, 5_000);
+        handler.setIndexed(true);
+        write(handler, 5_000, 10_000);
+        handler.close();
+        handler = new FileChannelHandler(log);
+        write(handler, 10_000, 15_000);
+        handler.close();
+        handler = new FileChannelHandler(log);
+        handler.setIndexed(true);
+        write(handler, 15_000, 20_000);
+        handler.close();
+
+        LogIndex index = LogIndex.read(log);
+        long from = START + 100_000;
+        long to = START + 110_000;
+        LogIndex.Range range = index.query(from, to);
+        assertThat(range.end() - range.start(), lessThan(Files.size(log) / 5));
+        assertThat(window(SupportLogReader.entries(log, range.start(), range.end(), false), from, to),
+                is(window(SupportLogReader.entries(log, false), from, to)));
+    }
+
+    @Test
+    void unindexedTail() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log);
+        handler.setIndexed(true);
+        write(handler, 0, 5_000);
+        handler.setIndexed(false);
+        write(handler, 5_000, 10_000);
+        handler.close();
+        LogIndex.Range range = LogIndex.read(log).query(START + 80_000, START + 90_000);
+        assertThat(range.end(), is(Files.size(log)));
+    }
+
+    @Test
+    void truncatedLog() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log);
+        handler.setIndexed(true);
+        write(handler, 0, 10_000);
+        handler.close();
+        Files.write(log, new byte[0]);
+        handler = new FileChannelHandler(log);
+        handler.setIndexed(true);
+        write(handler, 0, 100);
+        handler.close();
+        LogIndex index = LogIndex.read(log);
+        assertThat(index.query(START, START + 1000), is(new LogIndex.Range(0, Files.size(log))));
+    }
+
+    @Test
+    void rotation() throws Exception {
+        Path log = dir.resolve("test.log");
+        FileChannelHandler handler = new FileChannelHandler(log, 200_000, 3, false);
+        handler.setIndexed(true);
+        write(handler, 0, 10_000);
+        handler.close();
+        for (Path file : new Path[] {log, handler.generation(1), handler.generation(2)}) {
+            byte[] written = Files.readAllBytes(LogIndex.sidecar(file));
+            LogIndex.rebuild(file);
+            assertThat(Files.readAllBytes(LogIndex.sidecar(file)), is(written));
+        }
+    }
+
+    @Test
+    void notAnIndex() throws Exception {
+        Path log = Files.writeString(dir.resolve("test.log"), "");
+        Files.writeString(LogIndex.sidecar(log), "something else");
+        assertThrows(IOException.class, () -> LogIndex.read(log));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import org.junit.jupiter.api.Test;
+
+class MessageTemplateTest {
+
+    private static final String[] PATTERNS = {
+        null, "", "plain", "{0}", "{0} and {1}", "{1} before {0}", "{0}{0}{0}", "{2} out of range", "{10} two digits",
+        "{0", "{0 unterminated", "{ 0}", "{a}", "{}", "brace at end {", "{0} '{1}' quoted", "it''s {0}", "closing } alone {0}",
+        "{0,number,#.##}", "{0,number,integer} {1,date,short}", "{0,choice,0#none|1#one|1<many}", "{9999}", "{10000}", "{00001}",
+        "{-1}", "{0}{", "bundle.key", "bundle.pattern",
+    };
+
+    private static final Object[][] PARAMETERS = {
+        null, {}, {"a"}, {"a", "b"}, {null, 1}, {12345, 6.5}, {new Date(0), "b"}, {new Object() {
+            @Override
+            public String toString() {
+                return null;
+            }
+        }}, {new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException();
+            }
+        }}, {"x", "y", "z", "w"}, {Level.INFO},
+    };
+
+    public static final class Bundle extends ListResourceBundle {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][] {{"bundle.key", "localized"}, {"bundle.pattern", "localized {0} and {1}"}};
+        }
+    }
+
+    @Test
+    void sameAsFormatter() {
+        Formatter reference = new SimpleFormatter();
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        ResourceBundle bundle = new Bundle();
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            for (Locale l : new Locale[] {Locale.US, Locale.GERMANY, Locale.US}) {
+                Locale.setDefault(Locale.Category.FORMAT, l);
+                for (int round = 0; round < 2; round++) {
+                    for (String pattern : PATTERNS) {
+                        for (Object[] parameters : PARAMETERS) {
+                            for (ResourceBundle b : new ResourceBundle[] {null, bundle}) {
+                                LogRecord record = new LogRecord(Level.INFO, pattern);
+                                record.setParameters(parameters);
+                                record.setResourceBundle(b);
+                                String expected;
+                                try {
+                                    expected = reference.formatMessage(record);
+                                } catch (NullPointerException x) {
+                                    // looking up a null key in a bundle
+                                    continue;
+                                }
+                                assertThat(pattern + " with " + l, formatter.formatMessage(record), is(expected));
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+        }
+    }
+
+    @Test
+    void cached() {
+        MessageTemplate template = MessageTemplate.of("cached {0}");
+        assertThat(MessageTemplate.of("cached {0}"), sameInstance(template));
+        assertThat(template.format(new Object[] {"value"}), is("cached value"));
+        assertThat(template.format(new Object[] {1234567}), is(MessageFormat.format("cached {0}", 1234567)));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.LogRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffHeapRingBufferHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void retainsFormattedOutput() throws Exception {
+        OffHeapRingBufferHandler handler = new OffHeapRingBufferHandler(64 * 1024);
+        assertThat(handler.getCapacity(), is(64 * 1024));
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            LogRecord record = FileChannelHandlerTest.record(i);
+            if (i % 100 == 0) {
+                // short enough to fit in a block, unlike the stack trace of a test method
+                Exception failure = new Exception("failure " + i);
+                failure.setStackTrace(new StackTraceElement[] {new StackTraceElement("some.pkg.Catcher", "robust", "Catcher.java", i)});
+                record.setThrown(failure);
+            }
+            handler.publish(record);
+            all.append(formatter.format(record));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = handler.writeTo(out);
+        String retained = out.toString(StandardCharsets.UTF_8);
+        assertThat(written, is((long) out.size()));
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        assertThat(handler.writeTo(again), is(written));
+        assertThat(again.toString(StandardCharsets.UTF_8), is(retained));
+        assertThat(all.toString(), endsWith(retained));
+        assertThat(retained.startsWith(SupportLogFormatter.class.getSimpleName()) || retained.startsWith("2026-"), is(true));
+
+        Path file = dir.resolve("recent.log");
+        Files.writeString(file, "previous contents which are longer than the retained output".repeat(10_000));
+        handler.close();
+        handler.publish(FileChannelHandlerTest.record(-1));
+        assertThat(handler.writeTo(file), is(written));
+        assertThat(Files.readString(file, StandardCharsets.UTF_8), is(retained));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class OffHeapRingBufferTest {
+
+    private static String snapshot(OffHeapRingBuffer buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = buffer.writeTo(Channels.newChannel(out));
+        assertThat(written, is((long) out.size()));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void keepsMostRecent() throws Exception {
+        OffHeapRingBuffer buffer = new OffHeapRingBuffer(4096, 4);
+        assertThat(buffer.capacity(), is(4096));
+        assertThat(snapshot(buffer), is(""));
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String entry = "entry " + i + " café" + "x".repeat(i % 50) + "\n";
+            buffer.append(entry);
+            all.append(entry);
+            String snapshot = snapshot(buffer);
+            assertThat(all.toString(), endsWith(snapshot));
+            assertThat(snapshot, endsWith(entry));
+            if (i > 100) {
+                // at least all but one block, minus headers and padding
+                assertThat(snapshot.length(), greaterThanOrEqualTo(1024));
+            }
+            assertThat(snapshot.getBytes(StandardCharsets.UTF_8).length, lessThanOrEqualTo(4096));
+        }
+    }
+
+    @Test
+    void truncates() throws Exception {
+        OffHeapRingBuffer buffer = new OffHeapRingBuffer(1024, 2);
+        buffer.append("☃".repeat(1000));
+        buffer.append("small\n");
+        String snapshot = snapshot(buffer);
+        assertThat(snapshot, endsWith("☃[truncated]\nsmall\n"));
+        assertThat(snapshot.getBytes(StandardCharsets.UTF_8).length, lessThanOrEqualTo(buffer.maxEntryLength() + 6));
+        assertThat(OffHeapRingBuffer.truncate("ab😀cd", 14).toString(), is("ab[truncated]\n"));
+        assertThat(OffHeapRingBuffer.truncate("ab😀cd", 18).toString(), is("ab😀[truncated]\n"));
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        OffHeapRingBuffer buffer = new OffHeapRingBuffer(16 * 1024, 8);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    buffer.append("<" + id + ":" + i + ":" + "y".repeat(i % 97) + ">\n");
+                    if (i % 100 == 0) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        Pattern entry = Pattern.compile("<(\\d):(\\d+):(y*)>\n");
+        List<String> failures = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    String snapshot = snapshot(buffer);
+                    Matcher m = entry.matcher(snapshot);
+                    int end = 0;
+                    while (m.find() && m.start() == end) {
+                        if (m.group(3).length() != Integer.parseInt(m.group(2)) % 97) {
+                            failures.add(m.group());
+                        }
+                        end = m.end();
+                    }
+                    if (end != snapshot.length()) {
+                        failures.add(snapshot.substring(end, Math.min(snapshot.length(), end + 200)));
+                    }
+                    Thread.yield();
+                }
+            } catch (IOException x) {
+                failures.add(x.toString());
+            }
+        });
+        reader.start();
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+        assertThat(failures, is(List.of()));
+        String last = snapshot(buffer);
+        assertThat(last.substring(last.lastIndexOf('<')).matches("<\\d:19999:y*>\n"), is(true));
+    }
+}
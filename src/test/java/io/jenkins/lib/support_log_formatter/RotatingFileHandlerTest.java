@@ -0,0 +1,286 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RotatingFileHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    private static String read(Path file) throws IOException {
+        try (InputStream in = file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(Files.newInputStream(file)) : Files.newInputStream(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> names(List<Path> files) {
+        List<String> names = new ArrayList<>();
+        for (Path file : files) {
+            names.add(file.getFileName().toString());
+        }
+        return names;
+    }
+
+    @Test
+    void rollsOverBySize() throws Exception {
+        Path log = dir.resolve("test.log");
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        StringBuilder expected = new StringBuilder();
+        RotatingFileHandler handler = new RotatingFileHandler(log, 10_000, null);
+        try {
+            for (int i = 0; i < 500; i++) {
+                LogRecord record = FileChannelHandlerTest.record(i);
+                expected.append(formatter.format(record));
+                handler.publish(record);
+            }
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            List<Path> archives = handler.getArchives();
+            assertThat(archives.size() > 3, is(true));
+            // the first segment starts with record 0
+            assertThat(archives.get(0).getFileName().toString(), is("test.log.20260101T000000.000Z.gz"));
+            StringBuilder actual = new StringBuilder();
+            for (Path archive : archives) {
+                assertThat(archive.getFileName().toString().endsWith(".gz"), is(true));
+                assertThat(Files.size(archive) < 10_000, is(true));
+                String text = read(archive);
+                assertThat(text.getBytes(StandardCharsets.UTF_8).length <= 10_000, is(true));
+                assertThat(archive.getFileName().toString(),
+                        is(RotatingFileHandler.archivePath(log, SupportLogReader.parse(text.substring(0, text.indexOf('\n'))).millis()).getFileName() + ".gz"));
+                actual.append(text);
+            }
+            handler.flush();
+            actual.append(read(log));
+            assertThat(actual.toString(), is(expected.toString()));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void rollsOverByTime() throws Exception {
+        Path log = dir.resolve("test.log");
+        Instant start = Instant.parse("2026-01-01T10:59:00Z");
+        RotatingFileHandler handler = new RotatingFileHandler(log, 0, Duration.ofHours(1), 0, false);
+        try {
+            for (int minutes : new int[] {0, 1, 2, 30, 61, 62, 200}) {
+                LogRecord record = FileChannelHandlerTest.record(minutes);
+                record.setInstant(start.plus(Duration.ofMinutes(minutes)));
+                handler.publish(record);
+            }
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            assertThat(names(handler.getArchives()), contains("test.log.20260101T105900.000Z", "test.log.20260101T110000.000Z", "test.log.20260101T120000.000Z"));
+            assertThat(read(handler.getArchives().get(0)).split("\n").length, is(1));
+            assertThat(read(handler.getArchives().get(1)).split("\n").length, is(3));
+            assertThat(read(handler.getArchives().get(2)).split("\n").length, is(2));
+            handler.flush();
+            assertThat(read(log).startsWith("2026-01-01 14:19:00.000+0000"), is(true));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void keepsMostRecentArchives() throws Exception {
+        Path log = dir.resolve("test.log");
+        // a segment left uncompressed by an earlier process, and a log to append to
+        Files.writeString(RotatingFileHandler.archivePath(log, 0), "old\n");
+        Files.writeString(log, new SupportLogFormatter().format(FileChannelHandlerTest.record(0)));
+        RotatingFileHandler handler = new RotatingFileHandler(log, 1, null, 3, true);
+        try {
+            // the last two segments start in the same millisecond
+            for (int i = 0; i < 3; i++) {
+                handler.publish(FileChannelHandlerTest.record(1));
+            }
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            List<Path> archives = handler.getArchives();
+            assertThat(names(archives), contains(
+                    "test.log.20260101T000000.000Z.gz",
+                    "test.log.20260101T000000.001Z.gz",
+                    "test.log.20260101T000000.002Z.gz"));
+            assertThat(read(archives.get(2)), is(new SupportLogFormatter().format(FileChannelHandlerTest.record(1))));
+            assertThat(Files.exists(RotatingFileHandler.archivePath(log, 0)), is(false));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void deletesInterruptedCompression() throws Exception {
+        Path log = dir.resolve("test.log");
+        Path archive = RotatingFileHandler.archivePath(log, 0);
+        Files.writeString(archive, "old\n");
+        // as left by a process which exited while compressing, along with one whose archive has gone
+        Path tmp = archive.resolveSibling(archive.getFileName() + ".gz.tmp");
+        Files.writeString(tmp, "partial");
+        Path orphan = RotatingFileHandler.archivePath(log, 1000).resolveSibling(RotatingFileHandler.archivePath(log, 1000).getFileName() + ".gz.tmp");
+        Files.writeString(orphan, "partial");
+        Path unrelated = dir.resolve("other.log.19700101T000000.000Z.gz.tmp");
+        Files.writeString(unrelated, "partial");
+        RotatingFileHandler handler = new RotatingFileHandler(log, 0, null);
+        try {
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            assertThat(Files.exists(tmp), is(false));
+            assertThat(Files.exists(orphan), is(false));
+            assertThat(Files.exists(unrelated), is(true));
+            assertThat(names(handler.getArchives()), contains("test.log.19700101T000000.000Z.gz"));
+            assertThat(read(handler.getArchives().get(0)), is("old\n"));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void ignoresFilteredRecords() throws Exception {
+        Path log = dir.resolve("test.log");
+        RotatingFileHandler handler = new RotatingFileHandler(log, 0, Duration.ofHours(1), 0, false);
+        handler.setLevel(Level.INFO);
+        try {
+            Instant start = Instant.parse("2026-01-01T09:30:00Z");
+            for (int minutes : new int[] {0, 40, 50, 95}) {
+                LogRecord record = FileChannelHandlerTest.record(minutes);
+                record.setInstant(start.plus(Duration.ofMinutes(minutes)));
+                if (minutes == 0) {
+                    // would start the segment in the previous hour
+                    record.setLevel(Level.FINE);
+                }
+                handler.publish(record);
+            }
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            assertThat(names(handler.getArchives()), contains("test.log.20260101T101000.000Z"));
+            assertThat(read(handler.getArchives().get(0)).split("\n").length, is(2));
+            handler.flush();
+            assertThat(read(log).startsWith("2026-01-01 11:05:00.000+0000"), is(true));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void keepsAppendingWhenArchivingFails() throws Exception {
+        Path log = dir.resolve("test.log");
+        AtomicBoolean broken = new AtomicBoolean(true);
+        RotatingFileHandler handler = new RotatingFileHandler(log, 1, null, 0, false) {
+            @Override
+            protected void archive(Path file) throws IOException {
+                if (broken.get()) {
+                    throw new IOException("file is in use");
+                }
+                super.archive(file);
+            }
+        };
+        AtomicInteger errors = new AtomicInteger();
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String msg, Exception ex, int code) {
+                errors.incrementAndGet();
+            }
+        });
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        try {
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                handler.publish(FileChannelHandlerTest.record(i));
+                expected.append(formatter.format(FileChannelHandlerTest.record(i)));
+            }
+            // with a limit of 1 byte, every record takes the file past another limit, so each one retries
+            assertThat(errors.get(), is(2));
+            assertThat(handler.getArchives().isEmpty(), is(true));
+            broken.set(false);
+            handler.publish(FileChannelHandlerTest.record(3));
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            assertThat(names(handler.getArchives()), contains("test.log.20260101T000000.000Z"));
+            assertThat(read(handler.getArchives().get(0)), is(expected.toString()));
+            handler.flush();
+            assertThat(read(log), is(formatter.format(FileChannelHandlerTest.record(3))));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void backsOffUntilNextIntervalWhenArchivingFails() throws Exception {
+        Path log = dir.resolve("test.log");
+        AtomicBoolean broken = new AtomicBoolean(true);
+        RotatingFileHandler handler = new RotatingFileHandler(log, 0, Duration.ofHours(1), 0, false) {
+            @Override
+            protected void archive(Path file) throws IOException {
+                if (broken.get()) {
+                    throw new IOException("file is in use");
+                }
+                super.archive(file);
+            }
+        };
+        AtomicInteger errors = new AtomicInteger();
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String msg, Exception ex, int code) {
+                errors.incrementAndGet();
+            }
+        });
+        try {
+            Instant start = Instant.parse("2026-01-01T10:00:00Z");
+            for (int minutes : new int[] {0, 60, 70, 110, 125, 150, 180}) {
+                if (minutes == 150) {
+                    broken.set(false);
+                }
+                LogRecord record = FileChannelHandlerTest.record(minutes);
+                record.setInstant(start.plus(Duration.ofMinutes(minutes)));
+                handler.publish(record);
+            }
+            // attempted at 11:00 and 12:05 only, then not again until 13:00
+            assertThat(errors.get(), is(2));
+            assertThat(handler.awaitCompression(30, TimeUnit.SECONDS), is(true));
+            assertThat(names(handler.getArchives()), contains("test.log.20260101T100000.000Z"));
+            assertThat(read(handler.getArchives().get(0)).split("\n").length, is(6));
+            handler.flush();
+            assertThat(read(log).startsWith("2026-01-01 13:00:00.000+0000"), is(true));
+        } finally {
+            handler.close();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.jupiter.api.Test;
+
+class StackTraceDeduplicatorTest {
+
+    /** Creates the failures from a single call site so that their stack traces match. */
+    private static Exception[] failures(String... messages) {
+        Exception[] failures = new Exception[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            failures[i] = new IOException(messages[i], new IllegalStateException("cause"));
+        }
+        return failures;
+    }
+
+    @Test
+    void fingerprint() {
+        Exception[] failures = failures("connection to port 8080 failed", "connection to port 50000 failed", "connection to host failed", "connection to port 8080 failed");
+        long fingerprint = StackTraceDeduplicator.fingerprint(failures[0]);
+        assertThat(StackTraceDeduplicator.fingerprint(failures[1]), is(fingerprint));
+        assertThat(StackTraceDeduplicator.fingerprint(failures[2]) == fingerprint, is(false));
+        Exception otherFrames = failures[3];
+        otherFrames.setStackTrace(new StackTraceElement[] {new StackTraceElement("some.pkg.Catcher", "robust", "Catcher.java", 456)});
+        assertThat(StackTraceDeduplicator.fingerprint(otherFrames) == fingerprint, is(false));
+        Exception otherCause = new IOException("connection to port 8080 failed", new IllegalArgumentException("cause"));
+        otherCause.setStackTrace(failures[0].getStackTrace());
+        assertThat(StackTraceDeduplicator.fingerprint(otherCause) == fingerprint, is(false));
+    }
+
+    @Test
+    void cyclicChain() {
+        Exception a = new Exception("a");
+        Exception b = new Exception("b", a);
+        a.initCause(b);
+        assertThat(StackTraceDeduplicator.fingerprint(a), is(StackTraceDeduplicator.fingerprint(a)));
+    }
+
+    @Test
+    void formatter() {
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        formatter.setStackTraceDeduplicationWindow(Duration.ofMinutes(1));
+        assertThat(formatter.getStackTraceDeduplicationWindow(), is(Duration.ofMinutes(1)));
+        Exception[] failures = failures("request 1 failed", "request 2 failed", "request 3 failed", "request 4 failed", "request 5 failed");
+        String id = StackTraceDeduplicator.id(StackTraceDeduplicator.fingerprint(failures[0]));
+
+        String first = formatter.format(record(0, failures[0]));
+        assertThat(first, containsString("\tat "));
+        assertThat(first, containsString("[stack trace " + id + "]"));
+
+        String second = formatter.format(record(1000, failures[1]));
+        assertThat(second, not(containsString("\tat ")));
+        assertThat(second, containsString("[stack trace " + id + " repeated, occurrence 2 since 1970-01-01 00:00:00.000+0000] java.io.IOException: request 2 failed"));
+        assertThat(formatter.format(record(2000, failures[2])), containsString("occurrence 3"));
+
+        // the window ended long ago
+        assertThat(formatter.summarizeRepeatedStackTraces(), is(""));
+
+        String afterWindow = formatter.format(record(61_000, failures[3]));
+        assertThat(afterWindow, containsString("\tat "));
+        assertThat(afterWindow, containsString("[stack trace " + id + "] previously repeated 2 times"));
+
+        formatter.setStackTraceDeduplicationWindow(null);
+        assertThat(formatter.format(record(62_000, failures[4])), not(containsString("[stack trace")));
+        assertThat(formatter.summarizeRepeatedStackTraces(), is(""));
+    }
+
+    @Test
+    void summary() {
+        StackTraceDeduplicator deduplicator = new StackTraceDeduplicator(60_000, 16);
+        Exception[] failures = failures("request 1 failed", "request 2 failed", "request 3 failed", "request 4 failed", "request 5 failed");
+        String id = StackTraceDeduplicator.id(StackTraceDeduplicator.fingerprint(failures[0]));
+        for (int i = 0; i < 3; i++) {
+            deduplicator.record(failures[i], i * 1000);
+        }
+        assertThat(summary(deduplicator, 3000),
+                is("[stack trace " + id + "] repeated 2 times since 1970-01-01 00:00:00.000+0000: java.io.IOException: request 1 failed" + System.lineSeparator()));
+        assertThat(summary(deduplicator, 4000), is(""));
+        deduplicator.record(failures[3], 5000);
+        assertThat(summary(deduplicator, 6000),
+                is("[stack trace " + id + "] repeated 1 times since 1970-01-01 00:00:04.000+0000: java.io.IOException: request 1 failed" + System.lineSeparator()));
+        deduplicator.record(failures[4], 59_000);
+        assertThat(summary(deduplicator, 61_000), is(""));
+    }
+
+    private static String summary(StackTraceDeduplicator deduplicator, long now) {
+        StringBuilder sb = new StringBuilder();
+        deduplicator.appendSummary(sb, now);
+        return sb.toString();
+    }
+
+    @Test
+    void sameRecordFormattedAgain() {
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        formatter.setStackTraceDeduplicationWindow(Duration.ofMinutes(1));
+        Exception[] failures = failures("request 1 failed", "request 2 failed", "request 3 failed");
+        // as when one formatter is shared by several handlers
+        LogRecord first = record(0, failures[0]);
+        assertThat(formatter.format(first), containsString("\tat "));
+        assertThat(formatter.format(first), containsString("\tat "));
+        LogRecord second = record(1000, failures[1]);
+        String repeat = formatter.format(second);
+        assertThat(repeat, containsString("occurrence 2"));
+        assertThat(formatter.format(second), is(repeat));
+        assertThat(formatter.format(record(2000, failures[2])), containsString("occurrence 3"));
+    }
+
+    @Test
+    void differentTracesAreNotAbbreviated() {
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        formatter.setStackTraceDeduplicationWindow(Duration.ofMinutes(1));
+        formatter.format(record(0, failures("request failed")[0]));
+        assertThat(formatter.format(record(1, new IllegalStateException("something else"))), containsString("\tat "));
+    }
+
+    private static LogRecord record(long millis, Throwable thrown) {
+        LogRecord record = new LogRecord(Level.WARNING, "failed");
+        record.setInstant(Instant.ofEpochMilli(millis));
+        record.setThrown(thrown);
+        return record;
+    }
+}
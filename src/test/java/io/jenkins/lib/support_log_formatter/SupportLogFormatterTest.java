@@ -28,12 +28,16 @@ import static io.jenkins.lib.support_log_formatter.SupportLogFormatter.transform
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalToCompressingWhiteSpace;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.time.Instant;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import org.junit.jupiter.api.Test;
@@ -99,6 +103,70 @@ class SupportLogFormatterTest {
         assertThat(transformMessage("foo\n\rbar", "    "), is("foo" + System.lineSeparator() + "    [LF]> " + System.lineSeparator() + "    [CR]> bar"));
     }
 
+    @Test
+    void testTransformEdgeCases() {
+        String plain = "no line breaks here";
+        assertThat(transformMessage(plain, ""), sameInstance(plain));
+        assertThat(transformMessage("", ""), is(""));
+        assertThat(transformMessage("\n", ""), is("\n"));
+        assertThat(transformMessage("\r", ""), is("\r"));
+        assertThat(transformMessage("\r\n", ""), is(System.lineSeparator()));
+        assertThat(transformMessage("foo\n", ""), is("foo\n"));
+        assertThat(transformMessage("foo\r\n", ""), is("foo" + System.lineSeparator()));
+        assertThat(transformMessage("\nfoo", ""), is(System.lineSeparator() + "[LF]> foo"));
+        assertThat(transformMessage("foo\r\r\nbar\n\n", "\t"), is("foo" + System.lineSeparator() + "\t[CR]> " + System.lineSeparator() + "\t[CRLF]> bar"
+                + System.lineSeparator() + "\t[LF]> \n"));
+    }
+
+    @Test
+    void transformSameAsCharByChar() {
+        char[] alphabet = {'a', 'b', ' ', '\t', '\n', '\r', '\u00e9'};
+        Random r = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            char[] chars = new char[r.nextInt(12)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[r.nextInt(alphabet.length)];
+            }
+            String message = new String(chars);
+            String indent = r.nextBoolean() ? "" : "\t";
+            String expected = charByCharTransformMessage(message, indent);
+            assertThat(message, transformMessage(message, indent), is(expected));
+            StringBuilder sb = new StringBuilder("prefix");
+            transformMessage(sb, message, indent);
+            assertThat(message, sb.toString(), is("prefix" + expected));
+        }
+    }
+
+    /**
+     * The original implementation of {@link SupportLogFormatter#transformMessage(String, String)}, which looked at each character in turn.
+     */
+    private static String charByCharTransformMessage(String message, String indent) {
+        StringBuilder sb = new StringBuilder();
+        char[] chars = message.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (i < chars.length - 1 && c == '\r' && chars[i + 1] == '\n') {
+                if (i < chars.length - 2) {
+                    sb.append(System.lineSeparator()).append(indent).append("[CRLF]").append(SupportLogFormatter.NEWLINE_INDICATOR);
+                } else {
+                    sb.append(System.lineSeparator());
+                }
+                i += 1;
+                continue;
+            }
+            if (c == '\n' || c == '\r') {
+                if (i < chars.length - 1) {
+                    sb.append(System.lineSeparator()).append(indent).append(c == '\n' ? "[LF]" : "[CR]").append(SupportLogFormatter.NEWLINE_INDICATOR);
+                } else {
+                    sb.append(c);
+                }
+                continue;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
     @Test
     void testNewlinesForSecurity3424() {
         assertFormatting("""
@@ -123,7 +191,71 @@ class SupportLogFormatterTest {
                                 new SuppressedException("I\nam\nsuppressed", null))));
     }
 
-    // TODO test abbreviateClassName
+    @Test
+    void abbreviateClassName() {
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        assertThat(formatter.abbreviateClassName(null, 32), is("-"));
+        assertThat(formatter.abbreviateClassName("some.pkg.Catcher", 32), is("some.pkg.Catcher"));
+        assertThat(formatter.abbreviateClassName("NoPackageButAVeryLongClassNameIndeed", 32), is("NoPackageButAVeryLongClassNameIndeed"));
+        assertThat(formatter.abbreviateClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup", 32), is("o.j.p.w.cps.CpsThreadGroup"));
+        assertThat(formatter.abbreviateClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup", 40), is("o.j.plugins.workflow.cps.CpsThreadGroup"));
+        assertThat(formatter.abbreviateClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup", 10), is("o.j.p.w.c.CpsThreadGroup"));
+    }
+
+    @Test
+    void formatTo() throws Exception {
+        LogRecord lr = new LogRecord(Level.WARNING, "failed to do stuff\nreally");
+        lr.setLongThreadID(999);
+        lr.setSourceClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup");
+        lr.setInstant(Instant.ofEpochMilli(0));
+        lr.setThrown(new PhonyException("oops", new PhonyException2("lol", null)));
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        String expected = formatter.format(lr);
+        StringBuilder sb = new StringBuilder("prefix:");
+        formatter.formatTo(lr, sb);
+        assertThat(sb.toString(), is("prefix:" + expected));
+        StringWriter sw = new StringWriter();
+        formatter.formatTo(lr, sw);
+        assertThat(sw.toString(), is(expected));
+    }
+
+    @Test
+    void formatToHonorsOverrides() {
+        LogRecord lr = new LogRecord(Level.INFO, "some message");
+        lr.setLongThreadID(999);
+        lr.setSourceClassName("some.pkg.Catcher");
+        lr.setSourceMethodName("robust");
+        lr.setInstant(Instant.ofEpochMilli(0));
+        SupportLogFormatter formatter = new SupportLogFormatter() {
+            @Override
+            public String abbreviateClassName(String fqcn, int targetLength) {
+                return "Abbreviated";
+            }
+        };
+        StringBuilder sb = new StringBuilder();
+        formatter.formatTo(lr, sb);
+        assertThat(sb.toString(), is("1970-01-01 00:00:00.000+0000 [id=999]\tINFO\tAbbreviated#robust: some message\n"));
+        assertThat(formatter.format(lr), is(sb.toString()));
+    }
+
+    @Test
+    void printStackTraceWritesWholeTraceOnce() {
+        Exception x = new Exception("  oops  ", new FancyException());
+        x.setStackTrace(new StackTraceElement[] {new StackTraceElement("some.pkg.Catcher", "robust", "Catcher.java", 456)});
+        StringWriter sw = new StringWriter();
+        SupportLogFormatter.printStackTrace(x, new PrintWriter(sw));
+        assertThat(sw.toString(), is(SupportLogFormatter.printThrowable(x).trim() + System.lineSeparator()));
+
+        Exception broken = new Exception("outer", new Exception() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("cannot describe myself");
+            }
+        });
+        StringWriter partial = new StringWriter();
+        assertThrows(IllegalStateException.class, () -> SupportLogFormatter.printStackTrace(broken, new PrintWriter(partial)));
+        assertThat("nothing is written for a trace that fails to render", partial.toString(), is(""));
+    }
 
     private static void assertFormatting(@NonNull String expected, @NonNull Level level, @CheckForNull String message, @CheckForNull Throwable throwable) {
         LogRecord lr = new LogRecord(level, message);
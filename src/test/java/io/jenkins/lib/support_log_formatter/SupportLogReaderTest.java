@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SupportLogReaderTest {
+
+    @TempDir
+    Path tmp;
+
+    private static final String[] MESSAGES = {
+        "simple", "", null, "two\nlines", "windows\r\nline", "old\rmac", "trailing\n", "many\n\nbreaks\r\n\r\nhere",
+        "café ☃ 😀", "tab\tand: colon #hash", "2026-10-16 12:00:00.000+0000 [id=1]\tnot a record"
+    };
+
+    @Test
+    void roundTrip() throws Exception {
+        SupportLogFormatter formatter = new SupportLogFormatter();
+        List<LogRecord> records = new ArrayList<>();
+        StringBuilder text = new StringBuilder("preamble which is not a record\n");
+        for (int i = 0; i < 2000; i++) {
+            LogRecord record = new LogRecord(i % 3 == 0 ? Level.WARNING : Level.INFO, MESSAGES[i % MESSAGES.length]);
+            record.setInstant(Instant.ofEpochMilli(1_700_000_000_000L + i * 1234L));
+            record.setLongThreadID(i % 17);
+            record.setSourceClassName("org.jenkinsci.plugins.workflow.cps.CpsThreadGroup" + i % 5);
+            if (i % 2 == 0) {
+                record.setSourceMethodName("run");
+            }
+            if (i % 7 == 0) {
+                Exception x = new IOException("failure " + i + "\nsecond line", new IllegalStateException("cause"));
+                x.addSuppressed(new RuntimeException("suppressed"));
+                record.setThrown(x);
+            }
+            if (i == 1000) {
+                record.setMessage("long " + "x".repeat(10_000));
+            }
+            records.add(record);
+            text.append(formatter.format(record));
+        }
+        Path file = tmp.resolve("log");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        List<SupportLogReader.Entry> sequential;
+        try (Stream<SupportLogReader.Entry> entries = SupportLogReader.entries(file, false, 4096, 1024)) {
+            sequential = entries.collect(Collectors.toList());
+        }
+        List<SupportLogReader.Entry> parallel;
+        try (Stream<SupportLogReader.Entry> entries = SupportLogReader.entries(file, true, 4096, 1024)) {
+            parallel = entries.collect(Collectors.toList());
+        }
+        assertThat(parallel, is(sequential));
+        assertThat(sequential.size(), is(records.size()));
+        for (int i = 0; i < records.size(); i++) {
+            LogRecord record = records.get(i);
+            SupportLogReader.Entry entry = sequential.get(i);
+            assertThat(entry.millis(), is(record.getMillis()));
+            assertThat(entry.threadId(), is(record.getLongThreadID()));
+            assertThat(entry.level(), is(record.getLevel().getName()));
+            assertThat(entry.source(), is(formatter.abbreviateClassName(record.getSourceClassName(), record.getSourceMethodName() != null ? 32 : 40)));
+            assertThat(entry.method(), is(record.getSourceMethodName()));
+            assertThat(entry.message(), is(record.getMessage()));
+            assertThat(entry.thrown(), is(record.getThrown() == null ? null : SupportLogFormatter.printThrowable(record.getThrown())));
+        }
+    }
+
+    @Test
+    void parse() {
+        SupportLogReader.Entry entry = SupportLogReader.parse("1970-01-01 01:00:00.123+0100 [id=42]\tSEVERE\thudson.Main\n");
+        assertThat(entry.millis(), is(123L));
+        assertThat(entry.threadId(), is(42L));
+        assertThat(entry.level(), is("SEVERE"));
+        assertThat(entry.source(), is("hudson.Main"));
+        assertThat(entry.method(), nullValue());
+        assertThat(entry.message(), nullValue());
+        assertThat(entry.thrown(), nullValue());
+        assertThrows(IllegalArgumentException.class, () -> SupportLogReader.parse("1970-01-01 00:00:00 [id=42]\tSEVERE\thudson.Main\n"));
+    }
+
+    @Test
+    void empty() throws IOException {
+        Path file = Files.createFile(tmp.resolve("empty"));
+        try (Stream<SupportLogReader.Entry> entries = SupportLogReader.entries(file, true)) {
+            assertThat(entries.count(), is(0L));
+        }
+    }
+}
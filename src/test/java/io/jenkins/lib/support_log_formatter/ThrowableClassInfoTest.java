@@ -0,0 +1,57 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.PrintWriter;
+import org.junit.jupiter.api.Test;
+
+class ThrowableClassInfoTest {
+
+    @Test
+    void customPrintStackTrace() {
+        assertThat(ThrowableClassInfo.of(new Throwable()).customPrintStackTrace, is(false));
+        assertThat(ThrowableClassInfo.of(new IllegalStateException()).customPrintStackTrace, is(false));
+        assertThat(ThrowableClassInfo.of(new Custom()).customPrintStackTrace, is(true));
+        assertThat(ThrowableClassInfo.of(new SubCustom()).customPrintStackTrace, is(true));
+    }
+
+    @Test
+    void cachedPerClass() {
+        assertThat(ThrowableClassInfo.of(new Custom()), sameInstance(ThrowableClassInfo.of(new Custom())));
+    }
+
+    private static class Custom extends Exception {
+        @Override
+        public void printStackTrace(PrintWriter s) {
+            s.println("custom");
+        }
+    }
+
+    private static class SubCustom extends Custom {}
+}
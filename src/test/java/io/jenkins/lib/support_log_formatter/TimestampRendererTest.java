@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.jupiter.api.Test;
+
+class TimestampRendererTest {
+
+    @Test
+    void sameAsSimpleDateFormat() {
+        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSSZ", Locale.ROOT);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long[] interesting = {
+                0, 1, 999, 1000, -1, -999, -1000, -1001,
+                1_767_225_600_000L, // 2026-01-01
+                951_782_400_000L, // 2000-02-29
+                -12219292800000L, -12219292800001L, // Gregorian cutover
+                253402300799999L, 253402300800000L, // year 10000
+                Long.MAX_VALUE / 4, Long.MIN_VALUE / 4,
+        };
+        for (long millis : interesting) {
+            assertThat(TimestampRenderer.format(millis), is(f.format(new Date(millis))));
+        }
+        Random r = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long millis = r.nextLong() % 100_000_000_000_000L;
+            assertThat(TimestampRenderer.format(millis), is(f.format(new Date(millis))));
+            // same second, different milliseconds, served from the cached prefix
+            long sameSecond = millis - Math.floorMod(millis, 1000) + r.nextInt(1000);
+            assertThat(TimestampRenderer.format(sameSecond), is(f.format(new Date(sameSecond))));
+        }
+    }
+
+    @Test
+    void appends() {
+        StringBuilder sb = new StringBuilder("at ");
+        TimestampRenderer.append(sb, 1_767_225_600_123L);
+        assertThat(sb.toString(), is("at 2026-01-01 00:00:00.123+0000"));
+    }
+
+    @Test
+    void independentOfDefaultLocale() {
+        Locale original = Locale.getDefault();
+        try {
+            for (Locale locale : new Locale[] {Locale.forLanguageTag("th-TH"), Locale.forLanguageTag("th-TH-u-nu-thai"), Locale.forLanguageTag("ar-EG")}) {
+                Locale.setDefault(locale);
+                assertThat(TimestampRenderer.format(1_700_000_000_123L), is("2023-11-14 22:13:20.123+0000"));
+                // rendered by SimpleDateFormat
+                assertThat(TimestampRenderer.format(253402300800000L), is("10000-01-01 00:00:00.000+0000"));
+            }
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.jupiter.api.Test;
+
+class TrimmingAppendableTest {
+
+    @Test
+    void sameAsTrim() throws Exception {
+        String[] texts = {"", " ", "x", " x ", "\n\tfoo\n\tbar\n\n", "foo  bar", "  \n", "a\nb\n c \n"};
+        for (String text : texts) {
+            for (int split = 0; split <= text.length(); split++) {
+                StringBuilder sb = new StringBuilder();
+                TrimmingAppendable out = new TrimmingAppendable(sb);
+                out.append(text, 0, split);
+                for (int i = split; i < text.length(); i++) {
+                    out.append(text.charAt(i));
+                }
+                out.finish();
+                assertThat(sb.toString(), is(text.trim()));
+            }
+        }
+    }
+
+    @Test
+    void largeOutput() throws Exception {
+        StringBuilder expected = new StringBuilder();
+        StringBuilder sb = new StringBuilder();
+        TrimmingAppendable out = new TrimmingAppendable(sb);
+        out.append("\n");
+        for (int i = 0; i < 10_000; i++) {
+            String line = "\tat some.pkg.Class.method(Class.java:" + i + ")\n";
+            expected.append(line);
+            out.append(line);
+        }
+        out.finish();
+        assertThat(sb.toString(), is(expected.toString().trim()));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.jenkins.lib.support_log_formatter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class Utf8EncoderTest {
+
+    private static final String[] TEXTS = {
+            "", "plain ASCII", "café", "Jenkins » folder » job", "日本語", "emoji 😀!",
+            "lone high \ud83d surrogate", "lone low \ude00 surrogate", "trailing high \ud83d", "\u0000\u007f\u0080߿ࠀ￿",
+    };
+
+    @Test
+    void sameAsString() {
+        for (String text : TEXTS) {
+            assertEncoding(text);
+        }
+        Random r = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = new char[r.nextInt(50)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = r.nextBoolean() ? (char) r.nextInt(0x80) : (char) r.nextInt(0x10000);
+            }
+            assertEncoding(new String(chars));
+        }
+    }
+
+    private static void assertEncoding(String text) {
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        assertThat(text, Utf8Encoder.encodedLength(text), is(expected.length));
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(expected.length + 3), ByteBuffer.allocateDirect(expected.length + 3)}) {
+            buffer.put((byte) 'x');
+            Utf8Encoder.encode(text, buffer);
+            assertThat(buffer.position(), is(expected.length + 1));
+            byte[] actual = new byte[expected.length];
+            buffer.flip().position(1);
+            buffer.get(actual);
+            assertThat(text, Arrays.equals(actual, expected), is(true));
+        }
+    }
+
+    @Test
+    void overflow() {
+        assertThrows(BufferOverflowException.class, () -> Utf8Encoder.encode("too long", ByteBuffer.allocate(4)));
+        assertThrows(BufferOverflowException.class, () -> Utf8Encoder.encode("ééé", ByteBuffer.allocate(5)));
+        assertThrows(BufferOverflowException.class, () -> Utf8Encoder.encode("too long", ByteBuffer.allocateDirect(4)));
+    }
+}